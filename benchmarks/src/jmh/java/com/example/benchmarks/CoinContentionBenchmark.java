@@ -0,0 +1,99 @@
+package com.example.benchmarks;
+
+import com.example.user.LimCoinsService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Credit and debit as LimCoinsService runs them on the database: its conditional UPDATE and the
+ * balance read back under the row lock, through LimCoinsService.updateAndReadBack, committed as
+ * one transaction. 16 threads against an in-memory H2; with one account every thread fights for
+ * the same row lock, with more accounts the contention spreads out. The CDI, cache eviction and
+ * leaderboard work around it is left out.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(16)
+public class CoinContentionBenchmark {
+
+    private static final String URL = "jdbc:h2:mem:coins;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000";
+
+    @State(Scope.Benchmark)
+    public static class Accounts {
+
+        @Param({"1", "16", "1024"})
+        int accounts;
+
+        private Connection keepAlive;
+
+        @Setup(Level.Trial)
+        public void setUp() throws SQLException {
+            keepAlive = DriverManager.getConnection(URL, "sa", "");
+            try (Statement statement = keepAlive.createStatement()) {
+                statement.execute("DROP TABLE IF EXISTS users");
+                statement.execute("CREATE TABLE users (id BIGINT PRIMARY KEY, limCoins INT NOT NULL)");
+                statement.execute("INSERT INTO users SELECT X, 1000000 FROM SYSTEM_RANGE(1, " + accounts + ")");
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws SQLException {
+            keepAlive.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Session {
+
+        private Connection connection;
+
+        @Setup(Level.Trial)
+        public void setUp() throws SQLException {
+            connection = DriverManager.getConnection(URL, "sa", "");
+            connection.setAutoCommit(false);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws SQLException {
+            connection.close();
+        }
+    }
+
+    @Benchmark
+    public Integer credit(Accounts accounts, Session session) throws SQLException {
+        long userId = pick(accounts);
+        Integer balance = LimCoinsService.updateAndReadBack(session.connection, userId,
+                LimCoinsService.CREDIT_SQL, 10, userId);
+        session.connection.commit();
+        return balance;
+    }
+
+    @Benchmark
+    public Integer debit(Accounts accounts, Session session) throws SQLException {
+        long userId = pick(accounts);
+        Integer balance = LimCoinsService.updateAndReadBack(session.connection, userId,
+                LimCoinsService.DEBIT_SQL, 10, userId, 10);
+        session.connection.commit();
+        return balance;
+    }
+
+    private static long pick(Accounts accounts) {
+        return 1 + ThreadLocalRandom.current().nextInt(accounts.accounts);
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.benchmarks;
+
+import com.example.utils.CachingJwtParser;
+import com.example.utils.JwtUtils;
+import io.smallrye.jwt.auth.principal.DefaultJWTParser;
+import io.smallrye.jwt.auth.principal.JWTAuthContextInfo;
+import io.smallrye.jwt.auth.principal.ParseException;
+import io.smallrye.jwt.util.KeyUtils;
+import org.eclipse.microprofile.jwt.JsonWebToken;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.security.PublicKey;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token issuing at login, and what every authenticated request pays to verify the bearer token:
+ * a full RS256 verification versus a hit in the verified-token cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JwtBenchmark {
+
+    private String token;
+    private DefaultJWTParser verifyingParser;
+    private CachingJwtParser cachingParser;
+
+    @Setup
+    public void setUp() throws Exception {
+        // Same keys and algorithm as application.properties
+        System.setProperty("smallrye.jwt.sign.key.location", "META-INF/resources/privateKey.pem");
+        System.setProperty("smallrye.jwt.algorithm", "RS256");
+        token = JwtUtils.generateToken("benchmark-user", "User");
+
+        PublicKey publicKey = KeyUtils.readPublicKey("META-INF/resources/publicKey.pem");
+        JWTAuthContextInfo contextInfo = new JWTAuthContextInfo(publicKey, null);
+        verifyingParser = new DefaultJWTParser(contextInfo);
+        cachingParser = new CachingJwtParser(contextInfo, 10_000);
+        cachingParser.parse(token);
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return JwtUtils.generateToken("benchmark-user", "User");
+    }
+
+    @Benchmark
+    public JsonWebToken verifySignature() throws ParseException {
+        return verifyingParser.parse(token);
+    }
+
+    @Benchmark
+    public JsonWebToken verifiedCacheHit() throws ParseException {
+        return cachingParser.parse(token);
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.benchmarks;
+
+import com.example.user.Enchere;
+import com.example.user.Pokemon;
+import com.example.user.User;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import jakarta.json.bind.Jsonb;
+import jakarta.json.bind.JsonbBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON-B (what GET /users/{id} uses) versus Jackson for an enriched User, sized like a
+ * collector's profile.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class UserSerializationBenchmark {
+
+    @Param({"10", "500"})
+    int listSize;
+
+    private User user;
+    private Jsonb jsonb;
+    private ObjectMapper objectMapper;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        jsonb = JsonbBuilder.create();
+        objectMapper = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+        user = new User();
+        user.setId(42L);
+        user.setUsername("collector");
+        user.setEmail("collector@example.com");
+        user.setPassword("$2a$10$abcdefghijklmnopqrstuu1234567890123456789012345678901");
+        user.setLimCoins(125_000);
+        user.setRole("User");
+
+        List<Pokemon> pokemons = new ArrayList<>(listSize);
+        List<Enchere> encheres = new ArrayList<>(listSize);
+        for (int i = 0; i < listSize; i++) {
+            Pokemon pokemon = new Pokemon("Pokemon " + i, "A fairly long description of pokemon number " + i, 100 + i);
+            pokemon.setId((long) i);
+            pokemon.setTypes(List.of("fire", "flying"));
+            pokemon.setStats(Map.of("hp", 78, "attack", 84, "defense", 78, "speed", 100));
+            pokemons.add(pokemon);
+            encheres.add(new Enchere(42L, i, 100.0, 150.0 + i, 7L, LocalDateTime.of(2025, 1, 1, 12, 0), "actif"));
+        }
+        user.setPokemons(pokemons);
+        user.setEncheres(encheres);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        jsonb.close();
+    }
+
+    @Benchmark
+    public String jsonb() {
+        return jsonb.toJson(user);
+    }
+
+    @Benchmark
+    public String jackson() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(user);
+    }
+}
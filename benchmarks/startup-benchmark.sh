@@ -0,0 +1,190 @@
+#!/usr/bin/env bash
+#
+# Cold-start, first-request and memory comparison of the JVM (with and without AppCDS) and native builds.
+#
+# Build first (any of them):
+#   ./gradlew build                                   -> build/quarkus-app/quarkus-run.jar
+#   ./gradlew appCdsArchive                           -> build/quarkus-app/app-cds.jsa
+#   ./gradlew build -Dquarkus.native.enabled=true     -> build/*-runner
+#
+# Then run from the project root:
+#   benchmarks/startup-benchmark.sh [runs]
+#
+# Every run starts the application against a fresh in-memory H2 database served over TCP, with
+# src/main/docker/TrainingStubs.java standing in for the Pokémon and Enchère services, and records:
+#   - time from process launch to the first successful HTTP response
+#   - the startup time Quarkus logs ("started in ...")
+#   - latency of the first requests, driven by src/main/docker/training-workload.sh (the AppCDS
+#     training workload: register, logins, profile and Pokémon list reads, coin operations)
+#   - RSS once the first response is served, and after those requests
+# Results are printed and written to build/reports/startup/startup-<timestamp>.json.
+#
+# Environment: PORT (default 8089), H2_PORT (default 9099), FIRST_ITERATIONS (workload iterations,
+# default 20), MODES (default "jvm jvm-appcds native", missing builds are skipped).
+
+set -euo pipefail
+
+RUNS="${1:-10}"
+PORT="${PORT:-8089}"
+H2_PORT="${H2_PORT:-9099}"
+FIRST_ITERATIONS="${FIRST_ITERATIONS:-20}"
+MODES="${MODES:-jvm jvm-appcds native}"
+WORKLOAD="src/main/docker/training-workload.sh"
+STUBS="src/main/docker/TrainingStubs.java"
+BASE="http://localhost:${PORT}"
+REPORT_DIR="build/reports/startup"
+WORK_DIR="$(mktemp -d)"
+
+H2_JAR="$(ls build/quarkus-app/lib/main/com.h2database.h2-*.jar 2>/dev/null | head -n 1 || true)"
+if [[ -z "${H2_JAR}" ]]; then
+    echo "H2 jar not found under build/quarkus-app/lib/main, run ./gradlew build first" >&2
+    exit 1
+fi
+
+java -cp "${H2_JAR}" org.h2.tools.Server -tcp -tcpPort "${H2_PORT}" -ifNotExists > "${WORK_DIR}/h2.log" 2>&1 &
+H2_PID=$!
+java "${STUBS}" 0 > "${WORK_DIR}/stubs.log" 2>&1 &
+STUB_PID=$!
+APP_PID=""
+cleanup() {
+    [[ -n "${APP_PID}" ]] && kill "${APP_PID}" 2>/dev/null || true
+    kill "${H2_PID}" "${STUB_PID}" 2>/dev/null || true
+    rm -rf "${WORK_DIR}"
+}
+trap cleanup EXIT
+sleep 1
+STUB_PORT=""
+for ((i = 0; i < 300; i++)); do
+    STUB_PORT="$(head -n 1 "${WORK_DIR}/stubs.log")"
+    [[ "${STUB_PORT}" =~ ^[0-9]+$ ]] && break
+    STUB_PORT=""
+    sleep 0.1
+done
+if [[ -z "${STUB_PORT}" ]]; then
+    cat "${WORK_DIR}/stubs.log" >&2
+    echo "Downstream stubs did not start within 30s" >&2
+    exit 1
+fi
+
+# Command line of a mode, empty when that build is not there
+command_for() {
+    case "$1" in
+        jvm)
+            [[ -f build/quarkus-app/quarkus-run.jar ]] && echo "java ${JAVA_OPTS:-} -jar build/quarkus-app/quarkus-run.jar"
+            ;;
+        jvm-appcds)
+            # -Xshare:on fails the start instead of silently running without a stale archive
+            [[ -f build/quarkus-app/app-cds.jsa ]] && echo "java -XX:SharedArchiveFile=build/quarkus-app/app-cds.jsa -Xshare:on ${JAVA_OPTS:-} -jar build/quarkus-app/quarkus-run.jar"
+            ;;
+        native)
+            local runner
+            runner="$(ls build/*-runner 2>/dev/null | head -n 1 || true)"
+            [[ -n "${runner}" ]] && echo "${runner}"
+            ;;
+    esac
+    return 0
+}
+
+now_ms() {
+    echo $(( $(date +%s%N) / 1000000 ))
+}
+
+rss_kb() {
+    awk '/VmRSS/ { print $2 }' "/proc/$1/status"
+}
+
+# One cold start, sets RESULT to "<first response ms> <quarkus started ms> <rss at start kB> <rss after
+# the first requests kB> <first requests total ms> <first requests p50 ms> <first requests max ms> <requests>"
+measure() {
+    local mode="$1" run="$2" command="$3"
+    local log="${WORK_DIR}/${mode}-${run}.log"
+    local start
+    start="$(now_ms)"
+    # Settings go through the environment so the same command works for the jar and the executable
+    env QUARKUS_HTTP_PORT="${PORT}" \
+        QUARKUS_DATASOURCE_JDBC_URL="jdbc:h2:tcp://localhost:${H2_PORT}/mem:startup-${mode}-${run};DB_CLOSE_DELAY=-1" \
+        QUARKUS_HIBERNATE_ORM_DATABASE_GENERATION=drop-and-create \
+        QUARKUS_HIBERNATE_ORM_SQL_LOAD_SCRIPT=no-file \
+        QUARKUS_HIBERNATE_ORM_LOG_SQL=false \
+        USER_LOGIN_THROTTLE_ENABLED=false \
+        MP_REST_CLIENT__COM_EXAMPLE_USER_POKEMONCLIENT__URL="http://localhost:${STUB_PORT}" \
+        MP_REST_CLIENT__COM_EXAMPLE_USER_ENCHERECLIENT__URL="http://localhost:${STUB_PORT}" \
+        ${command} > "${log}" 2>&1 &
+    APP_PID=$!
+
+    until curl -sf -o /dev/null "${BASE}/q/metrics"; do
+        if ! kill -0 "${APP_PID}" 2>/dev/null; then
+            echo "${mode} exited during startup, see output below" >&2
+            cat "${log}" >&2
+            exit 1
+        fi
+        sleep 0.005
+    done
+    local first_response=$(( $(now_ms) - start ))
+    local rss_start
+    rss_start="$(rss_kb "${APP_PID}")"
+
+    local started
+    started="$(sed -n 's/.*started in \([0-9.]*\)s.*/\1/p' "${log}" | head -n 1)"
+    started="$(awk -v s="${started:-0}" 'BEGIN { printf "%d", s * 1000 }')"
+
+    local latencies
+    latencies="$("${WORKLOAD}" "${BASE}" "${FIRST_ITERATIONS}" | sort -n)"
+    local rss_warm
+    rss_warm="$(rss_kb "${APP_PID}")"
+    local first_requests
+    first_requests="$(awk '{ v[NR] = $1; total += $1 } END { printf "%d %d %d %d", total, v[int((NR + 1) / 2)], v[NR], NR }' <<< "${latencies}")"
+
+    kill "${APP_PID}"
+    wait "${APP_PID}" 2>/dev/null || true
+    APP_PID=""
+    RESULT="${first_response} ${started} ${rss_start} ${rss_warm} ${first_requests}"
+}
+
+# Median of the numbers given as arguments
+median() {
+    printf '%s\n' "$@" | sort -n | awk '{ v[NR] = $1 } END { print (NR % 2) ? v[(NR + 1) / 2] : int((v[NR / 2] + v[NR / 2 + 1]) / 2) }'
+}
+
+mkdir -p "${REPORT_DIR}"
+REPORT="${REPORT_DIR}/startup-$(date +%Y%m%d-%H%M%S).json"
+results=()
+
+printf '%-11s %5s %15s %14s %13s %13s %15s %12s %12s\n' \
+    mode runs first-response quarkus-start rss-start rss-after first-N-total first-N-p50 first-N-max
+for mode in ${MODES}; do
+    command="$(command_for "${mode}")"
+    if [[ -z "${command}" ]]; then
+        echo "${mode}: no build found, skipped" >&2
+        continue
+    fi
+    firsts=(); starts=(); rss_starts=(); rss_warms=(); n_totals=(); n_p50s=(); n_maxes=()
+    for ((run = 1; run <= RUNS; run++)); do
+        measure "${mode}" "${run}" "${command}"
+        read -r first started rss_start rss_warm n_total n_p50 n_max n_requests <<< "${RESULT}"
+        firsts+=("${first}"); starts+=("${started}"); rss_starts+=("${rss_start}"); rss_warms+=("${rss_warm}")
+        n_totals+=("${n_total}"); n_p50s+=("${n_p50}"); n_maxes+=("${n_max}")
+    done
+    m_first="$(median "${firsts[@]}")"
+    m_start="$(median "${starts[@]}")"
+    m_rss_start="$(median "${rss_starts[@]}")"
+    m_rss_warm="$(median "${rss_warms[@]}")"
+    m_n_total="$(median "${n_totals[@]}")"
+    m_n_p50="$(median "${n_p50s[@]}")"
+    m_n_max="$(median "${n_maxes[@]}")"
+    printf '%-11s %5d %12d ms %11d ms %10d MB %10d MB %12d ms %9d ms %9d ms\n' "${mode}" "${RUNS}" \
+        "${m_first}" "${m_start}" $(( m_rss_start / 1024 )) $(( m_rss_warm / 1024 )) \
+        "${m_n_total}" "${m_n_p50}" "${m_n_max}"
+    results+=("\"${mode}\": {\"runs\": ${RUNS}, \"firstResponseMillis\": ${m_first}, \"quarkusStartedMillis\": ${m_start}, \"rssAtStartKb\": ${m_rss_start}, \"rssAfterFirstRequestsKb\": ${m_rss_warm}, \"firstRequests\": ${n_requests}, \"firstRequestsTotalMillis\": ${m_n_total}, \"firstRequestsP50Millis\": ${m_n_p50}, \"firstRequestsMaxMillis\": ${m_n_max}}")
+done
+
+{
+    echo "{"
+    for ((i = 0; i < ${#results[@]}; i++)); do
+        separator=","
+        (( i == ${#results[@]} - 1 )) && separator=""
+        echo "  ${results[$i]}${separator}"
+    done
+    echo "}"
+} > "${REPORT}"
+echo "Report written to ${REPORT}"
@@ -0,0 +1,106 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+
+/**
+ * Stand-in for the Pokémon and Enchère services while the AppCDS archive is trained and while
+ * benchmarks/startup-benchmark.sh runs, so profile reads go through the rest clients and Jackson
+ * instead of failing fast into the stale fallback. Answers the PokemonClient and EnchereClient
+ * paths on one port with three entries per list, and accepts every POST.
+ *
+ * Run with the JDK's source launcher: java TrainingStubs.java [port], port 0 picks a free one.
+ * Prints the port once it listens.
+ */
+public class TrainingStubs {
+
+    private static final int ITEMS = 3;
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 0;
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", port), 128);
+        server.setExecutor(Executors.newFixedThreadPool(4));
+        server.createContext("/pokemons", exchange -> handle(exchange, "/pokemons", true));
+        server.createContext("/encheres", exchange -> handle(exchange, "/encheres", false));
+        server.start();
+        System.out.println(server.getAddress().getPort());
+    }
+
+    private static void handle(HttpExchange exchange, String root, boolean pokemons) throws IOException {
+        try {
+            String path = exchange.getRequestURI().getPath().substring(root.length());
+            if ("POST".equals(exchange.getRequestMethod())) {
+                exchange.getRequestBody().readAllBytes();
+                exchange.sendResponseHeaders(204, -1);
+            } else if (path.startsWith("/user/")) {
+                long userId = Long.parseLong(path.substring("/user/".length()));
+                send(exchange, pokemons ? pokemonsJson(userId) : encheresJson(userId));
+            } else if (path.equals("/users")) {
+                send(exchange, bulkJson(exchange.getRequestURI().getQuery(), pokemons));
+            } else {
+                exchange.sendResponseHeaders(404, -1);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static void send(HttpExchange exchange, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(body);
+        }
+    }
+
+    // ids=1,2,3 -> {"1":[...],"2":[...],"3":[...]}
+    private static String bulkJson(String query, boolean pokemons) {
+        StringBuilder json = new StringBuilder("{");
+        if (query != null && query.startsWith("ids=")) {
+            for (String id : query.substring("ids=".length()).split(",")) {
+                if (json.length() > 1) {
+                    json.append(',');
+                }
+                long userId = Long.parseLong(id);
+                json.append('"').append(id).append("\":")
+                        .append(pokemons ? pokemonsJson(userId) : encheresJson(userId));
+            }
+        }
+        return json.append('}').toString();
+    }
+
+    private static String pokemonsJson(long userId) {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < ITEMS; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            long id = userId * 1000 + i;
+            json.append("{\"id\":").append(id)
+                    .append(",\"nom\":\"Pokemon ").append(id)
+                    .append("\",\"description\":\"Stub pokemon\",\"miseAPrix\":100,\"valeurReelle\":120")
+                    .append(",\"types\":[\"fire\"],\"stats\":{\"hp\":50,\"attack\":60}}");
+        }
+        return json.append(']').toString();
+    }
+
+    private static String encheresJson(long userId) {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < ITEMS; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"id\":").append(userId * 1000 + i)
+                    .append(",\"userId\":").append(userId)
+                    .append(",\"pokemonId\":").append(i)
+                    .append(",\"startingPrice\":100.0,\"highestBid\":150.0,\"highestBidderId\":1")
+                    .append(",\"dateExpiration\":\"2030-01-01T12:00:00\",\"status\":\"actif\"}");
+        }
+        return json.append(']').toString();
+    }
+}
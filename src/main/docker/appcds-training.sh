@@ -0,0 +1,86 @@
+#!/usr/bin/env bash
+#
+# Records a dynamic AppCDS archive for the JVM image. Starts TrainingStubs.java in place of the
+# Pokémon and Enchère services and the application with -XX:ArchiveClassesAtExit, drives
+# training-workload.sh against it (login, user fetch with its rest client calls, coin operations)
+# and stops it, at which point the JVM writes every class it loaded to the archive. Without the
+# stubs the circuit breakers open and the rest client and Jackson classes are never loaded.
+#
+# An archive is only used by the exact JDK that wrote it and with the same class path, so
+# Dockerfile.jvm runs this inside the image against /deployments. ./gradlew appCdsArchive runs it
+# against build/quarkus-app for local comparisons.
+#
+# Usage: appcds-training.sh [app-dir] [archive]
+# Environment: TRAINING_PORT (default 8079), TRAINING_ITERATIONS (default 200)
+
+set -euo pipefail
+
+APP_DIR="${1:-/deployments}"
+ARCHIVE="${2:-${APP_DIR}/app-cds.jsa}"
+PORT="${TRAINING_PORT:-8079}"
+ITERATIONS="${TRAINING_ITERATIONS:-200}"
+WORKLOAD="$(dirname "$0")/training-workload.sh"
+STUBS="$(dirname "$0")/TrainingStubs.java"
+LOG="$(mktemp)"
+STUB_LOG="$(mktemp)"
+
+rm -f "${ARCHIVE}"
+
+java "${STUBS}" 0 > "${STUB_LOG}" 2>&1 &
+STUB_PID=$!
+trap 'kill "${STUB_PID}" 2>/dev/null || true' EXIT
+STUB_PORT=""
+for ((i = 0; i < 300; i++)); do
+    STUB_PORT="$(head -n 1 "${STUB_LOG}")"
+    [[ "${STUB_PORT}" =~ ^[0-9]+$ ]] && break
+    STUB_PORT=""
+    sleep 0.1
+done
+if [[ -z "${STUB_PORT}" ]]; then
+    cat "${STUB_LOG}" >&2
+    echo "Downstream stubs did not start within 30s" >&2
+    exit 1
+fi
+
+# Embedded in-memory database: nothing outside the image is needed during the build
+env QUARKUS_HTTP_HOST=localhost \
+    QUARKUS_HTTP_PORT="${PORT}" \
+    QUARKUS_DATASOURCE_JDBC_URL="jdbc:h2:mem:training;DB_CLOSE_DELAY=-1" \
+    QUARKUS_HIBERNATE_ORM_DATABASE_GENERATION=drop-and-create \
+    QUARKUS_HIBERNATE_ORM_SQL_LOAD_SCRIPT=no-file \
+    QUARKUS_HIBERNATE_ORM_LOG_SQL=false \
+    USER_LOGIN_THROTTLE_ENABLED=false \
+    MP_REST_CLIENT__COM_EXAMPLE_USER_POKEMONCLIENT__URL="http://localhost:${STUB_PORT}" \
+    MP_REST_CLIENT__COM_EXAMPLE_USER_ENCHERECLIENT__URL="http://localhost:${STUB_PORT}" \
+    java -XX:ArchiveClassesAtExit="${ARCHIVE}" -jar "${APP_DIR}/quarkus-run.jar" > "${LOG}" 2>&1 &
+PID=$!
+
+for ((i = 0; i < 600; i++)); do
+    curl -sf -o /dev/null "http://localhost:${PORT}/q/metrics" && break
+    if ! kill -0 "${PID}" 2>/dev/null; then
+        cat "${LOG}" >&2
+        echo "Application exited before the training workload could run" >&2
+        exit 1
+    fi
+    sleep 0.1
+done
+if ! curl -sf -o /dev/null "http://localhost:${PORT}/q/metrics"; then
+    kill "${PID}" 2>/dev/null || true
+    cat "${LOG}" >&2
+    echo "Application did not become ready within 60s" >&2
+    exit 1
+fi
+
+"${WORKLOAD}" "http://localhost:${PORT}" "${ITERATIONS}" > /dev/null
+
+# A regular shutdown is what makes the JVM dump the archive
+kill -TERM "${PID}"
+wait "${PID}" || true
+
+if [[ ! -s "${ARCHIVE}" ]]; then
+    cat "${LOG}" >&2
+    echo "No AppCDS archive was written to ${ARCHIVE}" >&2
+    exit 1
+fi
+rm -f "${LOG}" "${STUB_LOG}"
+echo "AppCDS archive written to ${ARCHIVE} ($(du -h "${ARCHIVE}" | cut -f1))"
@@ -0,0 +1,62 @@
+#!/usr/bin/env bash
+#
+# Short, representative workload: register, login, profile and Pokémon list reads, and coin operations.
+# Used to train the AppCDS archive (appcds-training.sh) and to measure first-request latency
+# (benchmarks/startup-benchmark.sh), so both exercise the same code paths.
+#
+# Usage: training-workload.sh <base-url> [iterations]
+#
+# Prints the latency of every request in milliseconds, one per line. The user id is taken from
+# the Location header of the registration response.
+
+set -euo pipefail
+
+BASE="$1"
+ITERATIONS="${2:-50}"
+USER_ID=""
+USERNAME="workload-$$-${RANDOM}"
+PASSWORD="workload-password"
+TOKEN=""
+
+# Seconds from curl's time_total to milliseconds
+millis() {
+    awk -v s="$1" 'BEGIN { printf "%.2f\n", s * 1000 }'
+}
+
+request() {
+    millis "$(curl -s -o /dev/null -w '%{time_total}' "$@")"
+}
+
+login() {
+    local response
+    response="$(curl -s -w '\n%{time_total}' -H 'Content-Type: application/json' \
+        -d "{\"username\":\"${USERNAME}\",\"password\":\"${PASSWORD}\"}" "${BASE}/users/login" || true)"
+    TOKEN="$(head -n 1 <<< "${response}")"
+    millis "$(tail -n 1 <<< "${response}")"
+}
+
+register() {
+    local response
+    response="$(curl -s -o /dev/null -D - -w '%{time_total}' -H 'Content-Type: application/json' \
+        -d "{\"username\":\"${USERNAME}\",\"email\":\"${USERNAME}@example.com\",\"password\":\"${PASSWORD}\"}" \
+        "${BASE}/users/register" || true)"
+    USER_ID="$(sed -n 's#^[Ll]ocation: .*/users/\([0-9][0-9]*\).*#\1#p' <<< "${response}" | head -n 1)"
+    millis "$(tail -n 1 <<< "${response}")"
+}
+
+register
+if [[ -z "${USER_ID}" ]]; then
+    echo "Registration of ${USERNAME} did not return the new user's location" >&2
+    exit 1
+fi
+
+for ((i = 0; i < ITERATIONS; i++)); do
+    if (( i % 10 == 0 )); then
+        login
+    fi
+    # The lists come from the Pokémon/Enchère services, or the stubs standing in for them
+    request -H "Authorization: Bearer ${TOKEN}" "${BASE}/users/${USER_ID}"
+    request -H "Authorization: Bearer ${TOKEN}" "${BASE}/users/${USER_ID}/pokemons"
+    request -X POST -H "Authorization: Bearer ${TOKEN}" "${BASE}/users/${USER_ID}/add-coins?amount=5"
+    request -X POST -H "Authorization: Bearer ${TOKEN}" "${BASE}/users/${USER_ID}/deduct-coins?amount=3"
+done
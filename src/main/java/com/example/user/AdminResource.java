@@ -1,26 +1,73 @@
 package com.example.user;
 
+import com.example.utils.CachingJwtParser;
+import com.example.utils.PinningMonitor;
+import io.smallrye.common.annotation.RunOnVirtualThread;
 import jakarta.annotation.security.RolesAllowed;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+
+import java.io.InputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 @Path("/admin")
 @Produces(MediaType.APPLICATION_JSON)
 @Consumes(MediaType.APPLICATION_JSON)
 @RolesAllowed("Admin") // Ensure only admins can access these endpoints
+@RunOnVirtualThread // Worker pool instead when quarkus.virtual-threads.enabled=false
 public class AdminResource {
 
     @Inject
     AdminService adminService;
 
+    @Inject
+    UserEnrichmentService enrichmentService;
+
+    @Inject
+    SessionFactory sessionFactory;
+
+    @Inject
+    UserImportService userImportService;
+
+    @Inject
+    LoginThrottle loginThrottle;
+
+    @Inject
+    CachingJwtParser jwtParser;
+
+    @Inject
+    UserUniquenessService uniquenessService;
+
+    @Inject
+    PinningMonitor pinningMonitor;
+
     @POST
     @Path("/create")
     public Response createUser(User user) {
         try {
             adminService.createUser(user);
             return Response.status(Response.Status.CREATED).entity("User created successfully!").build();
+        } catch (WebApplicationException e) {
+            return e.getResponse(); // e.g. the password hasher's 503, not the caller's fault
+        } catch (Exception e) {
+            return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
+        }
+    }
+
+    @POST
+    @Path("/users/import")
+    @Consumes("application/x-ndjson")
+    public Response importUsers(InputStream body) {
+        try {
+            return Response.ok(userImportService.importUsers(body)).build();
+        } catch (WebApplicationException e) {
+            return e.getResponse();
         } catch (Exception e) {
             return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
         }
@@ -32,6 +79,8 @@ public class AdminResource {
         try {
             adminService.updateUser(id, user);
             return Response.ok("User updated successfully!").build();
+        } catch (WebApplicationException e) {
+            return e.getResponse();
         } catch (Exception e) {
             return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
         }
@@ -43,8 +92,60 @@ public class AdminResource {
         try {
             adminService.deleteUser(id);
             return Response.ok("User deleted successfully!").build();
+        } catch (WebApplicationException e) {
+            return e.getResponse();
         } catch (Exception e) {
             return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
         }
     }
+
+    @GET
+    @Path("/stats/enrichment-cache")
+    public Response getEnrichmentCacheStats() {
+        return Response.ok(enrichmentService.cacheStats()).build();
+    }
+
+    @GET
+    @Path("/stats/login-throttle")
+    public Response getLoginThrottleStats() {
+        return Response.ok(loginThrottle.stats()).build();
+    }
+
+    @GET
+    @Path("/stats/jwt-cache")
+    public Response getJwtCacheStats() {
+        return Response.ok(jwtParser.stats()).build();
+    }
+
+    @GET
+    @Path("/stats/uniqueness-filter")
+    public Response getUniquenessFilterStats() {
+        return Response.ok(uniquenessService.stats()).build();
+    }
+
+    @GET
+    @Path("/stats/virtual-threads")
+    public Response getVirtualThreadStats() {
+        return Response.ok(pinningMonitor.stats()).build();
+    }
+
+    @GET
+    @Path("/stats/hibernate-cache")
+    public Response getHibernateCacheStats() {
+        Statistics statistics = sessionFactory.getStatistics();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("secondLevelHits", statistics.getSecondLevelCacheHitCount());
+        stats.put("secondLevelMisses", statistics.getSecondLevelCacheMissCount());
+        stats.put("secondLevelPuts", statistics.getSecondLevelCachePutCount());
+        stats.put("naturalIdHits", statistics.getNaturalIdCacheHitCount());
+        stats.put("naturalIdMisses", statistics.getNaturalIdCacheMissCount());
+        stats.put("queryCacheHits", statistics.getQueryCacheHitCount());
+        stats.put("queryCacheMisses", statistics.getQueryCacheMissCount());
+
+        CacheRegionStatistics userRegion = statistics.getDomainDataRegionStatistics(User.class.getName());
+        if (userRegion != null) {
+            stats.put("userRegionSize", userRegion.getElementCountInMemory());
+        }
+        return Response.ok(stats).build();
+    }
 }
@@ -1,43 +1,47 @@
 package com.example.user;
 
+import io.micrometer.core.annotation.Timed;
+import io.quarkus.narayana.jta.QuarkusTransaction;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import jakarta.persistence.EntityManager;
 import jakarta.transaction.Transactional;
-import org.mindrot.jbcrypt.BCrypt;
+import jakarta.ws.rs.ServiceUnavailableException;
 
 @ApplicationScoped
+@Timed(value = "admin.service", histogram = true)
 public class AdminService {
 
     @Inject
     EntityManager em;
 
-    @Transactional
+    @Inject
+    LimCoinsService limCoinsService;
+
+    @Inject
+    LoginThrottle loginThrottle;
+
+    @Inject
+    PasswordHasher passwordHasher;
+
+    @Inject
+    UserUniquenessService uniquenessService;
+
+    @Inject
+    UserEnrichmentService enrichmentService;
+
     public void createUser(User user) {
         if (user.getUsername() == null || user.getEmail() == null || user.getPassword() == null) {
             throw new IllegalArgumentException("All fields are required.");
         }
 
         try {
-            // Check if username or email already exists
-            Long usernameCount = em.createQuery(
-                            "SELECT COUNT(u) FROM User u WHERE u.username = :username", Long.class)
-                    .setParameter("username", user.getUsername())
-                    .getSingleResult();
-            if (usernameCount > 0) {
-                throw new IllegalArgumentException("Username already exists.");
-            }
-
-            Long emailCount = em.createQuery(
-                            "SELECT COUNT(u) FROM User u WHERE u.email = :email", Long.class)
-                    .setParameter("email", user.getEmail())
-                    .getSingleResult();
-            if (emailCount > 0) {
-                throw new IllegalArgumentException("Email already exists.");
-            }
+            // Check if username or email already exists, usually answered by the Bloom filters alone
+            uniquenessService.checkAvailable(user.getUsername(), user.getEmail(), null);
 
-            // Hash the password
-            user.setPassword(BCrypt.hashpw(user.getPassword(), BCrypt.gensalt()));
+            // Hash the password on the hasher pool, before any transaction holds a connection;
+            // the unique constraints still catch a registration racing this one
+            user.setPassword(passwordHasher.hash(user.getPassword()));
 
             // Set role to "User" if not provided
             if (user.getRole() == null || user.getRole().isEmpty()) {
@@ -47,8 +51,20 @@ public class AdminService {
             // Default LimCoins for new users
             user.setLimCoins(1000);
 
-            // Persist the user
-            em.persist(user);
+            // Persist the user, flushing so a lost race surfaces here as a constraint violation
+            try {
+                QuarkusTransaction.requiringNew().run(() -> {
+                    em.persist(user);
+                    em.flush();
+                    limCoinsService.accountCreated(user);
+                    loginThrottle.usernameTaken(user.getUsername());
+                    uniquenessService.taken(user.getUsername(), user.getEmail());
+                });
+            } catch (RuntimeException e) {
+                throw uniquenessService.translate(e, user.getUsername(), user.getEmail(), null);
+            }
+        } catch (ServiceUnavailableException e) {
+            throw e; // Hasher saturated, let the caller retry
         } catch (Exception e) {
             // Add debugging logs
             e.printStackTrace();
@@ -56,22 +72,34 @@ public class AdminService {
         }
     }
 
-    @Transactional
     public void updateUser(Long id, User updatedUser) {
-        User existingUser = em.find(User.class, id);
-        if (existingUser == null) {
-            throw new IllegalArgumentException("User not found.");
-        }
-        if (updatedUser.getUsername() != null) {
-            existingUser.setUsername(updatedUser.getUsername());
-        }
-        if (updatedUser.getEmail() != null) {
-            existingUser.setEmail(updatedUser.getEmail());
-        }
-        if (updatedUser.getPassword() != null) {
-            existingUser.setPassword(updatedUser.getPassword());
+        // Hashed before the transaction, like at registration
+        String passwordHash = updatedUser.getPassword() != null ? passwordHasher.hash(updatedUser.getPassword()) : null;
+
+        try {
+            QuarkusTransaction.requiringNew().run(() -> {
+                User existingUser = em.find(User.class, id);
+                if (existingUser == null) {
+                    throw new IllegalArgumentException("User not found.");
+                }
+                if (updatedUser.getUsername() != null) {
+                    existingUser.setUsername(updatedUser.getUsername());
+                    loginThrottle.usernameTaken(updatedUser.getUsername());
+                }
+                if (updatedUser.getEmail() != null) {
+                    existingUser.setEmail(updatedUser.getEmail());
+                }
+                if (passwordHash != null) {
+                    existingUser.setPassword(passwordHash);
+                }
+                em.merge(existingUser);
+                em.flush();
+                uniquenessService.taken(updatedUser.getUsername(), updatedUser.getEmail());
+            });
+        } catch (RuntimeException e) {
+            // Renaming onto a taken username or email is reported like at registration
+            throw uniquenessService.translate(e, updatedUser.getUsername(), updatedUser.getEmail(), id);
         }
-        em.merge(existingUser);
     }
 
     @Transactional
@@ -81,5 +109,7 @@ public class AdminService {
             throw new IllegalArgumentException("User not found.");
         }
         em.remove(user);
+        limCoinsService.accountDeleted(id);
+        enrichmentService.invalidate(id);
     }
 }
@@ -1,8 +1,10 @@
 package com.example.user;
 
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Entity;
 
 @Entity
+@Cacheable
 public class Administrateur extends User {
     // Additional fields or methods specific to admins can go here
     /*
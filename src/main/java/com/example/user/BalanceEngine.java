@@ -0,0 +1,317 @@
+package com.example.user;
+
+import io.quarkus.logging.Log;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.hibernate.Session;
+
+import java.nio.file.Path;
+import java.sql.PreparedStatement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Optional in-memory LimCoins engine for hot accounts. When enabled the per-account cells are the
+ * authoritative balances: every operation is journaled before it is acknowledged and the database
+ * is brought up to date in JDBC batches on a fixed interval. The journal record is written under
+ * the account lock but the wait for its fsync happens after the lock is released, so operations on
+ * a hot account share group commits. A reader may briefly see a balance whose record is not on disk
+ * yet, but records hold absolute balances and become durable in order, so an acknowledged operation
+ * is never lost and nothing built on an unacknowledged one can be acknowledged before it.
+ */
+@ApplicationScoped
+public class BalanceEngine {
+
+    private static final int FLUSH_BATCH_SIZE = 500;
+
+    @Inject
+    EntityManager em;
+
+    @Inject
+    UserCacheInvalidator cacheInvalidator;
+
+    @Inject
+    LeaderboardService leaderboardService;
+
+    @ConfigProperty(name = "user.limcoins.write-behind.enabled", defaultValue = "false")
+    boolean enabled;
+
+    @ConfigProperty(name = "user.limcoins.write-behind.flush-interval", defaultValue = "1s")
+    Duration flushInterval;
+
+    @ConfigProperty(name = "user.limcoins.write-behind.journal-dir", defaultValue = "data/limcoins-journal")
+    String journalDir;
+
+    @ConfigProperty(name = "user.limcoins.write-behind.journal-fsync", defaultValue = "true")
+    boolean journalFsync;
+
+    private final Map<Long, Cell> cells = new ConcurrentHashMap<>();
+    private final Set<Long> dirty = ConcurrentHashMap.newKeySet();
+
+    private BalanceJournal journal;
+    private ScheduledExecutorService flusher;
+
+    void onStart(@Observes StartupEvent event) {
+        if (!enabled) {
+            return;
+        }
+        journal = new BalanceJournal(Path.of(journalDir), journalFsync);
+
+        // Anything left from a crash was acknowledged, push it to the database before serving traffic
+        Map<Long, Long> recovered = journal.replay();
+        if (!recovered.isEmpty()) {
+            Log.infof("Replaying %d LimCoins balances from the journal", recovered.size());
+            writeBalances(recovered);
+        }
+        journal.deleteUpTo(Long.MAX_VALUE);
+        journal.open();
+
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "limcoins-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMillis = flushInterval.toMillis();
+        flusher.scheduleWithFixedDelay(this::flushQuietly, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    void onStop(@Observes ShutdownEvent event) {
+        if (!enabled) {
+            return;
+        }
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(flushInterval.toMillis() * 2, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        journal.close();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean credit(Long userId, int amount) {
+        return apply(userId, amount, false);
+    }
+
+    public boolean debit(Long userId, int amount) {
+        return apply(userId, -(long) amount, true);
+    }
+
+    public List<CoinOperationResult> applyBatch(List<CoinOperation> operations, boolean allOrNothing) {
+        List<CoinOperationResult> results = new ArrayList<>(operations.size());
+        if (!allOrNothing) {
+            for (CoinOperation operation : operations) {
+                boolean applied = operation.getAmount() != Integer.MIN_VALUE
+                        && apply(operation.getUserId(), operation.getAmount(), operation.getAmount() < 0);
+                results.add(new CoinOperationResult(operation,
+                        applied ? CoinOperationResult.Status.APPLIED : CoinOperationResult.Status.REJECTED));
+            }
+            return results;
+        }
+
+        // Lock every involved cell in id order so concurrent batches cannot deadlock
+        TreeMap<Long, Cell> involved = new TreeMap<>();
+        for (CoinOperation operation : operations) {
+            involved.computeIfAbsent(operation.getUserId(), this::cellFor);
+        }
+        List<Cell> locked = new ArrayList<>();
+        long ticket;
+        try {
+            for (Cell cell : involved.values()) {
+                if (cell != null) {
+                    cell.lock.lock();
+                    locked.add(cell);
+                }
+            }
+
+            // Dry run against scratch balances first, nothing is applied unless every operation fits
+            Map<Long, Long> balances = new HashMap<>();
+            boolean anyRejected = false;
+            for (CoinOperation operation : operations) {
+                Cell cell = involved.get(operation.getUserId());
+                long next = cell == null || operation.getAmount() == Integer.MIN_VALUE ? -1
+                        : balances.getOrDefault(operation.getUserId(), cell.balance) + operation.getAmount();
+                boolean fits = next >= 0 && next <= Integer.MAX_VALUE;
+                if (fits) {
+                    balances.put(operation.getUserId(), next);
+                }
+                anyRejected |= !fits;
+                results.add(new CoinOperationResult(operation,
+                        fits ? CoinOperationResult.Status.APPLIED : CoinOperationResult.Status.REJECTED));
+            }
+
+            if (anyRejected) {
+                for (CoinOperationResult result : results) {
+                    if (result.getStatus() == CoinOperationResult.Status.APPLIED) {
+                        result.setStatus(CoinOperationResult.Status.ROLLED_BACK);
+                    }
+                }
+                return results;
+            }
+
+            // One record for the whole batch, so a crash mid-write cannot replay half of it
+            dirty.addAll(balances.keySet());
+            ticket = journal.write(balances);
+            for (Map.Entry<Long, Long> entry : balances.entrySet()) {
+                involved.get(entry.getKey()).balance = entry.getValue();
+                leaderboardService.record(entry.getKey(), entry.getValue());
+            }
+        } finally {
+            for (Cell cell : locked) {
+                cell.lock.unlock();
+            }
+        }
+        journal.awaitDurable(ticket);
+        return results;
+    }
+
+    // Current balance if the engine holds this account, otherwise null and the database value is current
+    public Integer balanceOf(Long userId) {
+        Cell cell = cells.get(userId);
+        if (cell == null) {
+            return null;
+        }
+        cell.lock.lock();
+        try {
+            return (int) cell.balance;
+        } finally {
+            cell.lock.unlock();
+        }
+    }
+
+    // Drops the cell of a deleted user so later operations see the user as missing
+    public void forget(Long userId) {
+        cells.remove(userId);
+        dirty.remove(userId);
+    }
+
+    private boolean apply(Long userId, long delta, boolean requireFunds) {
+        Cell cell = cellFor(userId);
+        if (cell == null) {
+            return false; // User not found
+        }
+        long ticket;
+        cell.lock.lock();
+        try {
+            long next = cell.balance + delta;
+            if ((requireFunds && next < 0) || next > Integer.MAX_VALUE) {
+                return false; // Insufficient coins or the column would overflow
+            }
+            // Marked dirty before journaling so a concurrent flush never seals a record it won't write
+            dirty.add(userId);
+            ticket = journal.write(Map.of(userId, next));
+            cell.balance = next;
+            leaderboardService.record(userId, next);
+        } finally {
+            cell.lock.unlock();
+        }
+        // Wait for the fsync outside the lock so the next operation on this account can join it
+        journal.awaitDurable(ticket);
+        return true;
+    }
+
+    private Cell cellFor(Long userId) {
+        Cell cell = cells.get(userId);
+        if (cell != null) {
+            return cell;
+        }
+        List<Integer> stored = QuarkusTransaction.joiningExisting().call(() ->
+                em.createQuery("SELECT u.limCoins FROM User u WHERE u.id = :id", Integer.class)
+                        .setParameter("id", userId)
+                        .getResultList());
+        if (stored.isEmpty()) {
+            return null;
+        }
+        // If another thread loaded the same account meanwhile, its cell wins
+        return cells.computeIfAbsent(userId, id -> new Cell(stored.get(0)));
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            Log.error("LimCoins write-behind flush failed, will retry", e);
+        }
+    }
+
+    synchronized void flush() {
+        if (dirty.isEmpty()) {
+            return;
+        }
+        long sealed = journal.rotate();
+
+        Map<Long, Long> snapshot = new HashMap<>();
+        for (Iterator<Long> it = dirty.iterator(); it.hasNext(); ) {
+            Long userId = it.next();
+            it.remove();
+            Cell cell = cells.get(userId);
+            if (cell == null) {
+                continue;
+            }
+            cell.lock.lock();
+            try {
+                snapshot.put(userId, cell.balance);
+            } finally {
+                cell.lock.unlock();
+            }
+        }
+
+        try {
+            writeBalances(snapshot);
+        } catch (RuntimeException e) {
+            // The sealed journal stays on disk, so the balances survive a crash before the retry
+            dirty.addAll(snapshot.keySet());
+            throw e;
+        }
+        journal.deleteUpTo(sealed);
+    }
+
+    private void writeBalances(Map<Long, Long> balances) {
+        List<Map.Entry<Long, Long>> entries = new ArrayList<>(balances.entrySet());
+        QuarkusTransaction.requiringNew().run(() -> em.unwrap(Session.class).doWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "UPDATE users SET limCoins = ? WHERE id = ?")) {
+                for (int i = 0; i < entries.size(); i++) {
+                    statement.setLong(1, entries.get(i).getValue());
+                    statement.setLong(2, entries.get(i).getKey());
+                    statement.addBatch();
+                    if ((i + 1) % FLUSH_BATCH_SIZE == 0) {
+                        statement.executeBatch();
+                    }
+                }
+                statement.executeBatch();
+            }
+            cacheInvalidator.balancesChanged(balances.keySet());
+        }));
+    }
+
+    private static final class Cell {
+        private final ReentrantLock lock = new ReentrantLock();
+        private long balance;
+
+        private Cell(long balance) {
+            this.balance = balance;
+        }
+    }
+}
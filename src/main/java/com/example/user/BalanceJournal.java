@@ -0,0 +1,280 @@
+package com.example.user;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of LimCoins balances used by the write-behind {@link BalanceEngine}.
+ * Every record holds the absolute balances of the accounts one operation or one all-or-nothing
+ * batch touched, behind a count and ahead of a CRC over both, so a batch is replayed whole or not
+ * at all, and replaying the same file twice is harmless. Files are rotated on each flush and deleted once their
+ * balances are in the database. Writes commit as a group: records are written under the lock,
+ * which is released before the fsync, and one fsync makes every record written before it durable,
+ * so concurrent writers share it instead of queueing for one each. ReentrantLocks rather than
+ * synchronized, so a virtual thread waiting on the fsync does not pin its carrier.
+ */
+public class BalanceJournal {
+
+    private static final String PREFIX = "limcoins-";
+    private static final String SUFFIX = ".journal";
+    private static final int ENTRY_SIZE = Long.BYTES + Long.BYTES; // userId, balance
+
+    private final Path directory;
+    private final boolean fsync;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private FileChannel active;
+    private long activeSequence;
+    private long written; // records appended so far, guarded by lock
+
+    private final ReentrantLock syncLock = new ReentrantLock();
+    private final Condition synced = syncLock.newCondition();
+    private boolean syncing;
+    private long durable; // records known to be on disk, guarded by syncLock
+
+    public BalanceJournal(Path directory, boolean fsync) {
+        this.directory = directory;
+        this.fsync = fsync;
+    }
+
+    // Reads every journal left on disk, oldest first, and returns the last balance seen per user
+    public Map<Long, Long> replay() {
+        Map<Long, Long> balances = new LinkedHashMap<>();
+        lock.lock();
+        try {
+            Files.createDirectories(directory);
+            for (Path file : journalFiles()) {
+                readInto(file, balances);
+                activeSequence = Math.max(activeSequence, sequenceOf(file));
+            }
+            return balances;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not replay LimCoins journal in " + directory, e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Opens a fresh active file, replay() must have been called first
+    public void open() {
+        lock.lock();
+        try {
+            activeSequence++;
+            active = openFile(activeSequence);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Durably records the new balance, callers acknowledge the operation only after this returns
+    public void append(Long userId, long balance) {
+        awaitDurable(write(Map.of(userId, balance)));
+    }
+
+    // Writes one record holding every balance, returns the ticket to hand to awaitDurable(). The
+    // write itself does not wait for the disk, so callers can release their own locks first
+    public long write(Map<Long, Long> balances) {
+        ByteBuffer record = ByteBuffer.allocate(Integer.BYTES + balances.size() * ENTRY_SIZE + Integer.BYTES);
+        record.putInt(balances.size());
+        balances.forEach((userId, balance) -> record.putLong(userId).putLong(balance));
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), 0, record.position());
+        record.putInt((int) crc.getValue());
+        record.flip();
+
+        lock.lock();
+        try {
+            while (record.hasRemaining()) {
+                active.write(record);
+            }
+            return ++written;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not append to LimCoins journal", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Returns once the record behind the ticket, and every one written before it, is on disk
+    public void awaitDurable(long ticket) {
+        if (fsync) {
+            syncUpTo(ticket);
+        }
+    }
+
+    // The first writer to find no fsync running starts one, the others wait for it; whoever is
+    // still not covered once it ends starts the next
+    private void syncUpTo(long ticket) {
+        syncLock.lock();
+        try {
+            while (durable < ticket) {
+                if (syncing) {
+                    synced.awaitUninterruptibly();
+                    continue;
+                }
+                syncing = true;
+                long covered = 0;
+                UncheckedIOException failure = null;
+                syncLock.unlock();
+                try {
+                    covered = force();
+                } catch (UncheckedIOException e) {
+                    failure = e;
+                } finally {
+                    syncLock.lock();
+                    syncing = false;
+                    durable = Math.max(durable, covered);
+                    synced.signalAll();
+                }
+                // A file closed under the fsync was forced by close(), which counted it as durable
+                if (failure != null && durable < ticket) {
+                    throw failure;
+                }
+            }
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    // Forces the active file, returns how many records are now on disk
+    private long force() {
+        FileChannel channel;
+        long target;
+        lock.lock();
+        try {
+            channel = active;
+            target = written;
+        } finally {
+            lock.unlock();
+        }
+        try {
+            if (channel == null) {
+                throw new ClosedChannelException();
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not sync LimCoins journal", e);
+        }
+        return target;
+    }
+
+    // Seals the active file and starts a new one, returns the sequence of the sealed file
+    public long rotate() {
+        lock.lock();
+        try {
+            long sealed = activeSequence;
+            close();
+            activeSequence++;
+            active = openFile(activeSequence);
+            return sealed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Deletes sealed files whose balances are now in the database
+    public void deleteUpTo(long sequence) {
+        lock.lock();
+        try {
+            for (Path file : journalFiles()) {
+                if (sequenceOf(file) <= sequence) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not delete flushed LimCoins journals", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void close() {
+        lock.lock();
+        try {
+            if (active == null) {
+                return;
+            }
+            try {
+                active.force(true);
+                markDurable(written);
+                active.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not close LimCoins journal", e);
+            } finally {
+                active = null;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void markDurable(long records) {
+        syncLock.lock();
+        try {
+            durable = Math.max(durable, records);
+            synced.signalAll();
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    private FileChannel openFile(long sequence) {
+        try {
+            return FileChannel.open(directory.resolve(PREFIX + sequence + SUFFIX),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open LimCoins journal", e);
+        }
+    }
+
+    private List<Path> journalFiles() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+            stream.forEach(files::add);
+        }
+        files.sort((a, b) -> Long.compare(sequenceOf(a), sequenceOf(b)));
+        return files;
+    }
+
+    private static long sequenceOf(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+
+    private static void readInto(Path file, Map<Long, Long> balances) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+        CRC32 crc = new CRC32();
+        // A torn or corrupt record can only be the tail of a crashed write, it was never acknowledged
+        while (buffer.remaining() >= Integer.BYTES) {
+            int start = buffer.position();
+            int count = buffer.getInt();
+            if (count <= 0 || count > (buffer.remaining() - Integer.BYTES) / ENTRY_SIZE) {
+                break;
+            }
+            int checksumAt = buffer.position() + count * ENTRY_SIZE;
+            crc.reset();
+            crc.update(buffer.array(), start, checksumAt - start);
+            if ((int) crc.getValue() != buffer.getInt(checksumAt)) {
+                break;
+            }
+            for (int i = 0; i < count; i++) {
+                balances.put(buffer.getLong(), buffer.getLong());
+            }
+            buffer.position(checksumAt + Integer.BYTES);
+        }
+    }
+}
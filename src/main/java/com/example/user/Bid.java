@@ -1,9 +1,11 @@
 package com.example.user;
 
+import io.quarkus.runtime.annotations.RegisterForReflection;
 import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
 
+@RegisterForReflection
 public class Bid {
 
     private Long BIDid;
@@ -0,0 +1,35 @@
+package com.example.user;
+
+import io.quarkus.runtime.annotations.RegisterForReflection;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@RegisterForReflection
+public class CoinBatchRequest {
+
+    public enum Mode {
+        ALL_OR_NOTHING, // any rejected operation rolls back the whole batch
+        PER_ITEM        // every operation succeeds or fails on its own
+    }
+
+    private Mode mode = Mode.ALL_OR_NOTHING;
+    private List<CoinOperation> operations = new ArrayList<>();
+
+    // Getters and Setters
+    public Mode getMode() {
+        return mode;
+    }
+
+    public void setMode(Mode mode) {
+        this.mode = mode;
+    }
+
+    public List<CoinOperation> getOperations() {
+        return operations;
+    }
+
+    public void setOperations(List<CoinOperation> operations) {
+        this.operations = operations;
+    }
+}
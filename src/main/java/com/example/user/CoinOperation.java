@@ -0,0 +1,39 @@
+package com.example.user;
+
+import io.quarkus.runtime.annotations.RegisterForReflection;
+
+@RegisterForReflection
+public class CoinOperation {
+    private Long userId;
+    private int amount; // positive credits the user, negative debits
+
+    public CoinOperation() {
+    }
+
+    public CoinOperation(Long userId, int amount) {
+        this.userId = userId;
+        this.amount = amount;
+    }
+
+    // Getters and Setters
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public int getAmount() {
+        return amount;
+    }
+
+    public void setAmount(int amount) {
+        this.amount = amount;
+    }
+
+    // Zero moves nothing and Integer.MIN_VALUE has no positive counterpart to debit
+    public boolean hasValidAmount() {
+        return amount != 0 && amount != Integer.MIN_VALUE;
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.user;
+
+import io.quarkus.runtime.annotations.RegisterForReflection;
+
+@RegisterForReflection
+public class CoinOperationResult {
+
+    public enum Status {
+        APPLIED,
+        REJECTED,    // user not found or insufficient LimCoins
+        ROLLED_BACK  // would have applied, but another operation in the batch was rejected
+    }
+
+    private Long userId;
+    private int amount;
+    private Status status;
+
+    public CoinOperationResult() {
+    }
+
+    public CoinOperationResult(CoinOperation operation, Status status) {
+        this.userId = operation.getUserId();
+        this.amount = operation.getAmount();
+        this.status = status;
+    }
+
+    // Getters and Setters
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public int getAmount() {
+        return amount;
+    }
+
+    public void setAmount(int amount) {
+        this.amount = amount;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+}
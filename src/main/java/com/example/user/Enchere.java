@@ -1,5 +1,6 @@
 package com.example.user;
 
+import io.quarkus.runtime.annotations.RegisterForReflection;
 import jakarta.persistence.*;
 
 import java.time.LocalDateTime;
@@ -7,6 +8,7 @@ import java.util.List;
 
 
 
+@RegisterForReflection
 public class Enchere  {
 
     private Long id;
@@ -1,8 +1,14 @@
 package com.example.user;
 
+import io.smallrye.faulttolerance.api.AsynchronousNonBlocking;
+import io.smallrye.mutiny.Uni;
+import org.eclipse.microprofile.faulttolerance.Bulkhead;
+import org.eclipse.microprofile.faulttolerance.CircuitBreaker;
+import org.eclipse.microprofile.faulttolerance.Timeout;
 import org.eclipse.microprofile.rest.client.inject.RegisterRestClient;
 import jakarta.ws.rs.*;
 import java.util.List;
+import java.util.Map;
 
 
 @RegisterRestClient
@@ -14,7 +20,28 @@ public interface EnchereClient {
     @Path("/user/{userId}")
     List<Enchere> getEncheresByUserId(@PathParam("userId") Long userId);
 
+    // Non-blocking variant, lets callers run it alongside other downstream calls
+    @GET
+    @Path("/user/{userId}")
+    @AsynchronousNonBlocking
+    @Timeout(2000)
+    @Bulkhead(value = 50, waitingTaskQueue = 50)
+    @CircuitBreaker(requestVolumeThreshold = 20, failureRatio = 0.5, delay = 5000, successThreshold = 2)
+    Uni<List<Enchere>> getEncheresByUserIdAsync(@PathParam("userId") Long userId);
+
+    // Lists for several users in one call, keyed by user id; ids are comma separated. Every
+    // requested id gets an entry, an empty list for a user without any: a missing entry is
+    // treated as a failed lookup for that user
+    @GET
+    @Path("/users")
+    @AsynchronousNonBlocking
+    @Timeout(2000)
+    @Bulkhead(value = 10, waitingTaskQueue = 10) // One call carries a whole batch window, few run at once
+    @CircuitBreaker(requestVolumeThreshold = 20, failureRatio = 0.5, delay = 5000, successThreshold = 2)
+    Uni<Map<Long, List<Enchere>>> getEncheresByUserIds(@QueryParam("ids") String ids);
+
     @POST
+    @Timeout(5000)
     @Path("/place/{userId}")
     void placeBid(@PathParam("userId") Long userId, Enchere enchere);
 }
\ No newline at end of file
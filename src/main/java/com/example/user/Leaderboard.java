@@ -0,0 +1,217 @@
+package com.example.user;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory LimCoins ranking kept as an order-statistic treap: every node knows the size of its
+ * subtree, so top-N, pages of ranks and the rank of a single user all run in O(log n + k).
+ * Higher balances rank first, ties are broken by the lower user id.
+ */
+public class Leaderboard {
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Long> balances = new HashMap<>();
+    private Node root;
+
+    // Inserts the user or moves them to their new position, returns the previous balance or null
+    public Long update(Long userId, long balance) {
+        lock.writeLock().lock();
+        try {
+            Long previous = balances.put(userId, balance);
+            if (previous != null) {
+                root = delete(root, previous, userId);
+            }
+            root = insert(root, new Node(balance, userId));
+            return previous;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Returns the balance the user had, or null if they were not ranked
+    public Long remove(Long userId) {
+        lock.writeLock().lock();
+        try {
+            Long previous = balances.remove(userId);
+            if (previous != null) {
+                root = delete(root, previous, userId);
+            }
+            return previous;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<LeaderboardEntry> page(int offset, int limit) {
+        lock.readLock().lock();
+        try {
+            List<Node> nodes = new ArrayList<>(Math.min(limit, size(root)));
+            collect(root, new int[]{offset}, limit, nodes);
+            List<LeaderboardEntry> entries = new ArrayList<>(nodes.size());
+            for (int i = 0; i < nodes.size(); i++) {
+                Node node = nodes.get(i);
+                entries.add(new LeaderboardEntry(offset + i + 1, node.userId, node.balance));
+            }
+            return entries;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // 1-based rank of the user, or null if they are not ranked
+    public LeaderboardEntry rankOf(Long userId) {
+        lock.readLock().lock();
+        try {
+            Long balance = balances.get(userId);
+            if (balance == null) {
+                return null;
+            }
+            int ahead = 0;
+            Node node = root;
+            while (node != null) {
+                int cmp = compare(balance, userId, node.balance, node.userId);
+                if (cmp == 0) {
+                    ahead += size(node.left);
+                    break;
+                } else if (cmp < 0) {
+                    node = node.left;
+                } else {
+                    ahead += size(node.left) + 1;
+                    node = node.right;
+                }
+            }
+            return new LeaderboardEntry(ahead + 1, userId, balance);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size(root);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static int compare(long balanceA, long idA, long balanceB, long idB) {
+        int byBalance = Long.compare(balanceB, balanceA);
+        return byBalance != 0 ? byBalance : Long.compare(idA, idB);
+    }
+
+    private static int size(Node node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static Node insert(Node node, Node added) {
+        if (node == null) {
+            return added;
+        }
+        if (added.priority > node.priority) {
+            Node[] parts = split(node, added.balance, added.userId);
+            added.left = parts[0];
+            added.right = parts[1];
+            return added.resize();
+        }
+        if (compare(added.balance, added.userId, node.balance, node.userId) < 0) {
+            node.left = insert(node.left, added);
+        } else {
+            node.right = insert(node.right, added);
+        }
+        return node.resize();
+    }
+
+    private static Node delete(Node node, long balance, long userId) {
+        if (node == null) {
+            return null;
+        }
+        int cmp = compare(balance, userId, node.balance, node.userId);
+        if (cmp == 0) {
+            return merge(node.left, node.right);
+        }
+        if (cmp < 0) {
+            node.left = delete(node.left, balance, userId);
+        } else {
+            node.right = delete(node.right, balance, userId);
+        }
+        return node.resize();
+    }
+
+    // Splits into nodes ranked before the key and nodes ranked at or after it
+    private static Node[] split(Node node, long balance, long userId) {
+        if (node == null) {
+            return new Node[2];
+        }
+        if (compare(node.balance, node.userId, balance, userId) < 0) {
+            Node[] parts = split(node.right, balance, userId);
+            node.right = parts[0];
+            parts[0] = node.resize();
+            return parts;
+        }
+        Node[] parts = split(node.left, balance, userId);
+        node.left = parts[1];
+        parts[1] = node.resize();
+        return parts;
+    }
+
+    private static Node merge(Node left, Node right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            return left.resize();
+        }
+        right.left = merge(left, right.left);
+        return right.resize();
+    }
+
+    // In-order walk that skips whole subtrees until the offset is reached
+    private static void collect(Node node, int[] skip, int limit, List<Node> out) {
+        if (node == null || out.size() >= limit) {
+            return;
+        }
+        if (skip[0] >= node.size) {
+            skip[0] -= node.size;
+            return;
+        }
+        collect(node.left, skip, limit, out);
+        if (out.size() >= limit) {
+            return;
+        }
+        if (skip[0] > 0) {
+            skip[0]--;
+        } else {
+            out.add(node);
+        }
+        collect(node.right, skip, limit, out);
+    }
+
+    private static final class Node {
+        private final long balance;
+        private final long userId;
+        private final int priority = ThreadLocalRandom.current().nextInt();
+        private Node left;
+        private Node right;
+        private int size = 1;
+
+        private Node(long balance, long userId) {
+            this.balance = balance;
+            this.userId = userId;
+        }
+
+        private Node resize() {
+            size = 1 + Leaderboard.size(left) + Leaderboard.size(right);
+            return this;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.user;
+
+import io.quarkus.runtime.annotations.RegisterForReflection;
+
+@RegisterForReflection
+public class LeaderboardEntry {
+    private int rank;
+    private Long userId;
+    private long limCoins;
+
+    public LeaderboardEntry() {
+    }
+
+    public LeaderboardEntry(int rank, Long userId, long limCoins) {
+        this.rank = rank;
+        this.userId = userId;
+        this.limCoins = limCoins;
+    }
+
+    // Getters and Setters
+    public int getRank() {
+        return rank;
+    }
+
+    public void setRank(int rank) {
+        this.rank = rank;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public long getLimCoins() {
+        return limCoins;
+    }
+
+    public void setLimCoins(long limCoins) {
+        this.limCoins = limCoins;
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.user;
+
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.annotation.Priority;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import jakarta.interceptor.Interceptor;
+import jakarta.persistence.EntityManager;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+@ApplicationScoped
+public class LeaderboardService {
+
+    @Inject
+    EntityManager em;
+
+    @Inject
+    TransactionSynchronizationRegistry transactionRegistry;
+
+    private final Leaderboard leaderboard = new Leaderboard();
+
+    // Last change applied per user, removed users included so a late older update can't revive them
+    private final AtomicLong stamps = new AtomicLong();
+    private final Map<Long, Long> appliedStamps = new ConcurrentHashMap<>();
+
+    // Runs after the write-behind engine has replayed its journal, so the seed sees every balance
+    void onStart(@Observes @Priority(Interceptor.Priority.LIBRARY_AFTER) StartupEvent event) {
+        QuarkusTransaction.requiringNew().run(() ->
+                em.createQuery("SELECT u.id, u.limCoins FROM User u", Object[].class)
+                        .getResultStream()
+                        .forEach(row -> leaderboard.update((Long) row[0], ((Number) row[1]).longValue())));
+    }
+
+    public List<LeaderboardEntry> page(int offset, int limit) {
+        return leaderboard.page(offset, limit);
+    }
+
+    public LeaderboardEntry rankOf(Long userId) {
+        return leaderboard.rankOf(userId);
+    }
+
+    // Called while the updated row is still locked: the stamp taken here follows the commit order
+    // of changes to the same user, and the ranking only changes once the transaction has committed
+    public void balanceChanged(Long userId, long balance) {
+        long stamp = stamps.incrementAndGet();
+        afterCommit(() -> apply(userId, stamp, () -> leaderboard.update(userId, balance)));
+    }
+
+    public void userRemoved(Long userId) {
+        long stamp = stamps.incrementAndGet();
+        afterCommit(() -> apply(userId, stamp, () -> leaderboard.remove(userId)));
+    }
+
+    // For the write-behind engine, whose balances are not tied to a database transaction
+    public void record(Long userId, long balance) {
+        apply(userId, stamps.incrementAndGet(), () -> leaderboard.update(userId, balance));
+    }
+
+    // Synchronizations of concurrent commits may run in any order; a change older than the one
+    // already applied for that user is dropped
+    private void apply(Long userId, long stamp, Runnable change) {
+        appliedStamps.compute(userId, (id, applied) -> {
+            if (applied != null && applied > stamp) {
+                return applied;
+            }
+            change.run();
+            return stamp;
+        });
+    }
+
+    private void afterCommit(Runnable change) {
+        if (transactionRegistry.getTransactionStatus() != Status.STATUS_ACTIVE) {
+            change.run();
+            return;
+        }
+        transactionRegistry.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status == Status.STATUS_COMMITTED) {
+                    change.run();
+                }
+            }
+        });
+    }
+}
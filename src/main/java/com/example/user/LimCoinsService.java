@@ -0,0 +1,239 @@
+package com.example.user;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@ApplicationScoped
+public class LimCoinsService {
+
+    // Shared with the CoinContentionBenchmark so it measures the statements issued here
+    public static final String CREDIT_SQL = "UPDATE users SET limCoins = limCoins + ? WHERE id = ?";
+    public static final String DEBIT_SQL = "UPDATE users SET limCoins = limCoins - ? WHERE id = ? AND limCoins >= ?";
+    public static final String BALANCE_SQL = "SELECT limCoins FROM users WHERE id = ?";
+
+    @Inject
+    EntityManager em;
+
+    @Inject
+    BalanceEngine balanceEngine;
+
+    // Coin updates go through plain JDBC: a JPQL bulk UPDATE would make Hibernate drop the whole
+    // User cache region on every operation, so only the touched rows are evicted instead
+    @Inject
+    UserCacheInvalidator cacheInvalidator;
+
+    @Inject
+    LeaderboardService leaderboardService;
+
+    @Inject
+    MeterRegistry registry;
+
+    // Coin volume moved and debits refused, counted when the operation returns
+    private Counter credited;
+    private Counter debited;
+    private Counter rejected;
+
+    @PostConstruct
+    void initMetrics() {
+        credited = Counter.builder("limcoins.credited").baseUnit("coins").register(registry);
+        debited = Counter.builder("limcoins.debited").baseUnit("coins").register(registry);
+        // A refused debit is either insufficient funds or an unknown user, the UPDATE can't tell which
+        rejected = Counter.builder("limcoins.rejected").tag("reason", "insufficient_funds").register(registry);
+    }
+
+    // Credits the account in a single UPDATE, no read-modify-write. Joins the caller's transaction,
+    // except with write-behind on: see requireNoCallerTransaction
+    public boolean credit(Long userId, int amount) {
+        boolean applied;
+        if (balanceEngine.isEnabled()) {
+            requireNoCallerTransaction();
+            applied = balanceEngine.credit(userId, amount);
+        } else {
+            // 0 rows means the user does not exist
+            applied = QuarkusTransaction.joiningExisting().call(() -> applyUpdate(userId, CREDIT_SQL, amount, userId));
+        }
+        if (applied) {
+            credited.increment(amount);
+        }
+        return applied;
+    }
+
+    // Debits only when the balance covers the amount, the affected-row count decides success
+    public boolean debit(Long userId, int amount) {
+        boolean applied;
+        if (balanceEngine.isEnabled()) {
+            requireNoCallerTransaction();
+            applied = balanceEngine.debit(userId, amount);
+        } else {
+            // 0 rows means user not found or insufficient coins
+            applied = QuarkusTransaction.joiningExisting().call(() -> applyUpdate(userId, DEBIT_SQL, amount, userId, amount));
+        }
+        if (applied) {
+            debited.increment(amount);
+        } else {
+            rejected.increment();
+        }
+        return applied;
+    }
+
+    // Applies many signed operations in one transaction and one JDBC batch, in request order
+    public List<CoinOperationResult> applyBatch(List<CoinOperation> operations, CoinBatchRequest.Mode mode) {
+        boolean allOrNothing = mode == CoinBatchRequest.Mode.ALL_OR_NOTHING;
+        if (balanceEngine.isEnabled()) {
+            requireNoCallerTransaction();
+            return countBatch(balanceEngine.applyBatch(operations, allOrNothing));
+        }
+        return countBatch(QuarkusTransaction.joiningExisting().call(() -> applyBatchUpdate(operations, allOrNothing)));
+    }
+
+    // Write-behind operations are journaled and acknowledged on the spot, outside any transaction:
+    // a caller rolling back its own transaction afterwards would leave the coins moved. Rather than
+    // silently break the caller's atomicity, such calls are refused and must run on their own
+    private static void requireNoCallerTransaction() {
+        if (QuarkusTransaction.isActive()) {
+            throw new IllegalStateException(
+                    "LimCoins write-behind operations can't join a caller's transaction, call them outside it");
+        }
+    }
+
+    private List<CoinOperationResult> applyBatchUpdate(List<CoinOperation> operations, boolean allOrNothing) {
+        // A single conditional statement serves credits and debits, so one batch keeps their order
+        int[] counts = em.unwrap(Session.class).doReturningWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "UPDATE users SET limCoins = limCoins + ? WHERE id = ? AND limCoins + ? >= 0")) {
+                for (CoinOperation operation : operations) {
+                    statement.setInt(1, operation.getAmount());
+                    statement.setLong(2, operation.getUserId());
+                    statement.setInt(3, operation.getAmount());
+                    statement.addBatch();
+                }
+                return statement.executeBatch();
+            }
+        });
+
+        boolean anyRejected = false;
+        for (int count : counts) {
+            anyRejected |= count == 0;
+        }
+        if (anyRejected && allOrNothing) {
+            QuarkusTransaction.setRollbackOnly();
+        } else {
+            List<Long> userIds = operations.stream().map(CoinOperation::getUserId).distinct().toList();
+            cacheInvalidator.balancesChanged(userIds);
+            readBalances(userIds).forEach(leaderboardService::balanceChanged);
+        }
+
+        List<CoinOperationResult> results = new ArrayList<>(operations.size());
+        for (int i = 0; i < operations.size(); i++) {
+            CoinOperationResult.Status status;
+            if (counts[i] == 0) {
+                status = CoinOperationResult.Status.REJECTED;
+            } else if (anyRejected && allOrNothing) {
+                status = CoinOperationResult.Status.ROLLED_BACK;
+            } else {
+                status = CoinOperationResult.Status.APPLIED;
+            }
+            results.add(new CoinOperationResult(operations.get(i), status));
+        }
+        return results;
+    }
+
+    private List<CoinOperationResult> countBatch(List<CoinOperationResult> results) {
+        for (CoinOperationResult result : results) {
+            int amount = result.getAmount();
+            if (result.getStatus() == CoinOperationResult.Status.APPLIED) {
+                if (amount >= 0) {
+                    credited.increment(amount);
+                } else {
+                    debited.increment(-(double) amount);
+                }
+            } else if (result.getStatus() == CoinOperationResult.Status.REJECTED && amount < 0) {
+                rejected.increment();
+            }
+        }
+        return results;
+    }
+
+    // With write-behind on, the stored column may lag behind the in-memory balance
+    public int currentBalance(User user) {
+        Integer live = balanceEngine.isEnabled() ? balanceEngine.balanceOf(user.getId()) : null;
+        return live != null ? live : user.getLimCoins();
+    }
+
+    public void accountCreated(User user) {
+        leaderboardService.balanceChanged(user.getId(), user.getLimCoins());
+    }
+
+    public void accountDeleted(Long userId) {
+        if (balanceEngine.isEnabled()) {
+            balanceEngine.forget(userId);
+        }
+        leaderboardService.userRemoved(userId);
+    }
+
+    private boolean applyUpdate(Long userId, String sql, Object... parameters) {
+        Integer balance = em.unwrap(Session.class).doReturningWork(connection ->
+                updateAndReadBack(connection, userId, sql, parameters));
+        if (balance == null) {
+            return false;
+        }
+        cacheInvalidator.balancesChanged(List.of(userId));
+        leaderboardService.balanceChanged(userId, balance);
+        return true;
+    }
+
+    // Runs the UPDATE and reads the new balance back while the row is still locked by the caller's
+    // transaction, null when no row was updated
+    public static Integer updateAndReadBack(Connection connection, Long userId, String sql, Object... parameters)
+            throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (int i = 0; i < parameters.length; i++) {
+                statement.setObject(i + 1, parameters[i]);
+            }
+            if (statement.executeUpdate() == 0) {
+                return null;
+            }
+        }
+        try (PreparedStatement statement = connection.prepareStatement(BALANCE_SQL)) {
+            statement.setLong(1, userId);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() ? resultSet.getInt(1) : null;
+            }
+        }
+    }
+
+    private Map<Long, Integer> readBalances(List<Long> userIds) {
+        String placeholders = String.join(",", Collections.nCopies(userIds.size(), "?"));
+        return em.unwrap(Session.class).doReturningWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "SELECT id, limCoins FROM users WHERE id IN (" + placeholders + ")")) {
+                for (int i = 0; i < userIds.size(); i++) {
+                    statement.setLong(i + 1, userIds.get(i));
+                }
+                Map<Long, Integer> balances = new HashMap<>();
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        balances.put(resultSet.getLong(1), resultSet.getInt(2));
+                    }
+                }
+                return balances;
+            }
+        });
+    }
+}
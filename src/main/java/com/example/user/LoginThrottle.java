@@ -0,0 +1,192 @@
+package com.example.user;
+
+import com.example.user.exceptions.LoginThrottledException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token buckets per username and, opt-in, per client address in front of the login path, plus a
+ * short lived negative cache of unknown usernames. Rejections cost a map lookup, not a query and a
+ * BCrypt check. State is per instance.
+ *
+ * The client address is whatever Vert.x reports as the remote address. Behind a load balancer that
+ * is the balancer itself, so every user would share one bucket, unless quarkus.http.proxy.* is set
+ * up to take it from the forwarding headers of trusted proxies. Hence the per-client bucket is off
+ * until user.login.throttle.client.enabled says the address really identifies the client.
+ */
+@ApplicationScoped
+public class LoginThrottle {
+
+    @Inject
+    TransactionSynchronizationRegistry transactionRegistry;
+
+    @Inject
+    MeterRegistry registry;
+
+    @ConfigProperty(name = "user.login.throttle.enabled", defaultValue = "true")
+    boolean enabled;
+
+    @ConfigProperty(name = "user.login.throttle.username.capacity", defaultValue = "5")
+    int usernameCapacity;
+
+    @ConfigProperty(name = "user.login.throttle.username.refill-period", defaultValue = "12s")
+    Duration usernameRefillPeriod;
+
+    @ConfigProperty(name = "user.login.throttle.client.enabled", defaultValue = "false")
+    boolean clientEnabled;
+
+    @ConfigProperty(name = "user.login.throttle.client.capacity", defaultValue = "30")
+    int clientCapacity;
+
+    @ConfigProperty(name = "user.login.throttle.client.refill-period", defaultValue = "2s")
+    Duration clientRefillPeriod;
+
+    @ConfigProperty(name = "user.login.throttle.max-tracked", defaultValue = "100000")
+    long maxTracked;
+
+    @ConfigProperty(name = "user.login.unknown-username-ttl", defaultValue = "30s")
+    Duration unknownUsernameTtl;
+
+    private Cache<String, TokenBucket> usernameBuckets;
+    private Cache<String, TokenBucket> clientBuckets;
+    private Cache<String, Boolean> unknownUsernames;
+
+    private final AtomicLong allowed = new AtomicLong();
+    private final AtomicLong throttled = new AtomicLong();
+    private final AtomicLong unknownUsernameHits = new AtomicLong();
+
+    @PostConstruct
+    void init() {
+        // An idle bucket is full again after capacity * refill period, so it can be dropped then
+        usernameBuckets = Caffeine.newBuilder()
+                .maximumSize(maxTracked)
+                .expireAfterAccess(usernameRefillPeriod.multipliedBy(usernameCapacity))
+                .build();
+        clientBuckets = Caffeine.newBuilder()
+                .maximumSize(maxTracked)
+                .expireAfterAccess(clientRefillPeriod.multipliedBy(clientCapacity))
+                .build();
+        unknownUsernames = Caffeine.newBuilder()
+                .maximumSize(maxTracked)
+                .expireAfterWrite(unknownUsernameTtl)
+                .build();
+
+        FunctionCounter.builder("login.throttle.attempts", allowed, AtomicLong::get)
+                .tag("outcome", "allowed").register(registry);
+        FunctionCounter.builder("login.throttle.attempts", throttled, AtomicLong::get)
+                .tag("outcome", "throttled").register(registry);
+        FunctionCounter.builder("login.throttle.unknown-username.hits", unknownUsernameHits, AtomicLong::get)
+                .register(registry);
+        registry.gauge("login.throttle.tracked", Tags.of("bucket", "username"), usernameBuckets, Cache::estimatedSize);
+        registry.gauge("login.throttle.tracked", Tags.of("bucket", "client"), clientBuckets, Cache::estimatedSize);
+        registry.gauge("login.throttle.unknown-username.cached", unknownUsernames, Cache::estimatedSize);
+    }
+
+    // Throws a 429 when either the username or the client has used up its attempts
+    public void acquire(String username, String clientAddress) {
+        if (!enabled) {
+            return;
+        }
+        long now = System.nanoTime();
+        long waitNanos = 0;
+        if (clientEnabled && clientAddress != null) {
+            waitNanos = clientBuckets.get(clientAddress, key -> new TokenBucket(clientCapacity, clientRefillPeriod))
+                    .tryConsume(now);
+        }
+        if (waitNanos == 0 && username != null) {
+            waitNanos = usernameBuckets.get(username, key -> new TokenBucket(usernameCapacity, usernameRefillPeriod))
+                    .tryConsume(now);
+        }
+        if (waitNanos > 0) {
+            throttled.incrementAndGet();
+            throw new LoginThrottledException(Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos)));
+        }
+        allowed.incrementAndGet();
+    }
+
+    public boolean isKnownUnknown(String username) {
+        boolean hit = unknownUsernames.getIfPresent(username) != null;
+        if (hit) {
+            unknownUsernameHits.incrementAndGet();
+        }
+        return hit;
+    }
+
+    public void rememberUnknown(String username) {
+        unknownUsernames.put(username, Boolean.TRUE);
+    }
+
+    // Called when a username starts to exist, through registration, creation, import or rename.
+    // Cleared once the transaction commits: until then a login can't see the row and could
+    // remember the name as unknown again, and a rollback leaves it unknown anyway
+    public void usernameTaken(String username) {
+        if (transactionRegistry.getTransactionStatus() != Status.STATUS_ACTIVE) {
+            unknownUsernames.invalidate(username);
+            return;
+        }
+        transactionRegistry.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status == Status.STATUS_COMMITTED) {
+                    unknownUsernames.invalidate(username);
+                }
+            }
+        });
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("allowed", allowed.get());
+        stats.put("throttled", throttled.get());
+        stats.put("unknownUsernameHits", unknownUsernameHits.get());
+        stats.put("trackedUsernames", usernameBuckets.estimatedSize());
+        stats.put("trackedClients", clientBuckets.estimatedSize());
+        stats.put("cachedUnknownUsernames", unknownUsernames.estimatedSize());
+        return stats;
+    }
+
+    private static final class TokenBucket {
+        private final int capacity;
+        private final long refillNanos;
+        private double tokens;
+        private long lastRefill;
+
+        private TokenBucket(int capacity, Duration refillPeriod) {
+            this.capacity = capacity;
+            this.refillNanos = refillPeriod.toNanos();
+            this.tokens = capacity;
+            this.lastRefill = System.nanoTime();
+        }
+
+        // Returns 0 when a token was taken, otherwise how long until the next one
+        private synchronized long tryConsume(long now) {
+            tokens = Math.min(capacity, tokens + (double) (now - lastRefill) / refillNanos);
+            lastRefill = now;
+            if (tokens >= 1) {
+                tokens -= 1;
+                return 0;
+            }
+            return (long) ((1 - tokens) * refillNanos);
+        }
+    }
+}
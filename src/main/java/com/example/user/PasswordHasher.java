@@ -0,0 +1,165 @@
+package com.example.user;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.ServiceUnavailableException;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.mindrot.jbcrypt.BCrypt;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs BCrypt on a dedicated, bounded pool so hashing never happens on request threads or
+ * inside a transaction. When the pool and its queue are full, requests fail fast with 503
+ * instead of piling up. Bulk hashing (imports) only ever holds a few of the pool's slots, the rest
+ * stay free for logins and registrations.
+ */
+@ApplicationScoped
+public class PasswordHasher {
+
+    @ConfigProperty(name = "user.password.bcrypt-cost", defaultValue = "10")
+    int cost;
+
+    @ConfigProperty(name = "user.password.hash-threads", defaultValue = "4")
+    int threads;
+
+    @ConfigProperty(name = "user.password.hash-queue-size", defaultValue = "200")
+    int queueSize;
+
+    @ConfigProperty(name = "user.password.bulk-in-flight", defaultValue = "4")
+    int bulkInFlight;
+
+    @Inject
+    MeterRegistry registry;
+
+    private ExecutorService executor;
+    private Semaphore capacity;
+    private Semaphore bulkCapacity;
+
+    // Time spent in BCrypt itself; waiting for a pool thread is not included
+    private Timer hashTimer;
+    private Timer verifyTimer;
+
+    @PostConstruct
+    void init() {
+        AtomicInteger counter = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "password-hasher-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        capacity = new Semaphore(threads + queueSize);
+        // Never the whole pool, interactive callers always keep at least one slot
+        bulkCapacity = new Semaphore(Math.max(1, Math.min(bulkInFlight, threads + queueSize - 1)));
+
+        hashTimer = bcryptTimer("hash");
+        verifyTimer = bcryptTimer("verify");
+        registry.gauge("password.bcrypt.queued", capacity, remaining -> threads + queueSize - remaining.availablePermits());
+    }
+
+    private Timer bcryptTimer(String operation) {
+        return Timer.builder("password.bcrypt")
+                .tag("operation", operation)
+                .tag("cost", String.valueOf(cost))
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    public String hash(String password) {
+        return run(() -> hashTimer.recordCallable(() -> BCrypt.hashpw(password, BCrypt.gensalt(cost))), false);
+    }
+
+    public boolean verify(String password, String hash) {
+        return run(() -> verifyTimer.recordCallable(() -> BCrypt.checkpw(password, hash)), false);
+    }
+
+    // Bulk hashing waits for room in the pool rather than being rejected, and only ever takes
+    // bulkInFlight slots so an import can't starve interactive callers into 503s
+    public List<String> hashAll(List<String> passwords) {
+        List<Future<String>> futures = new ArrayList<>(passwords.size());
+        for (String password : passwords) {
+            bulkCapacity.acquireUninterruptibly();
+            try {
+                futures.add(submit(() -> {
+                    try {
+                        return hashTimer.recordCallable(() -> BCrypt.hashpw(password, BCrypt.gensalt(cost)));
+                    } finally {
+                        bulkCapacity.release();
+                    }
+                }, true));
+            } catch (RuntimeException e) {
+                bulkCapacity.release();
+                throw e;
+            }
+        }
+        List<String> hashes = new ArrayList<>(passwords.size());
+        for (Future<String> future : futures) {
+            hashes.add(await(future));
+        }
+        return hashes;
+    }
+
+    // True when the stored hash was made with a different work factor than the configured one
+    public boolean needsRehash(String hash) {
+        try {
+            return Integer.parseInt(hash.substring(4, 6)) != cost; // $2a$10$...
+        } catch (RuntimeException e) {
+            return true;
+        }
+    }
+
+    private <T> T run(Callable<T> task, boolean waitForCapacity) {
+        return await(submit(task, waitForCapacity));
+    }
+
+    private <T> Future<T> submit(Callable<T> task, boolean waitForCapacity) {
+        if (waitForCapacity) {
+            capacity.acquireUninterruptibly();
+        } else if (!capacity.tryAcquire()) {
+            throw new ServiceUnavailableException("Too many password operations in progress, retry later.");
+        }
+        try {
+            return executor.submit(() -> {
+                try {
+                    return task.call();
+                } finally {
+                    capacity.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            capacity.release();
+            throw e;
+        }
+    }
+
+    private static <T> T await(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the password hasher.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime; // e.g. BCrypt rejecting a malformed stored hash
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
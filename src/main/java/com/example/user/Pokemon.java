@@ -1,10 +1,12 @@
 package com.example.user;
 
+import io.quarkus.runtime.annotations.RegisterForReflection;
 import jakarta.persistence.*;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+@RegisterForReflection
 public class Pokemon {
 
 
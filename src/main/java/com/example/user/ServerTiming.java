@@ -0,0 +1,115 @@
+package com.example.user;
+
+import io.quarkus.arc.Arc;
+import io.quarkus.arc.ArcContainer;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.RequestScoped;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Per-request stage durations (db, bcrypt, pokemon, ...) sent back in the Server-Timing header.
+ * {@link ServerTimingFilter} decides once per request whether to switch it on. While no request
+ * in the process has it on, {@link #current()} is a single counter read with no request-context
+ * lookup, so instrumented code paths cost nothing for ordinary traffic.
+ */
+@RequestScoped
+public class ServerTiming {
+
+    // Handed out when there is no request (startup, imports, scheduled flushes) or timing is off
+    private static final ServerTiming DISABLED = new ServerTiming();
+
+    // Requests with timing on right now, counted down when their request context ends
+    private static final AtomicInteger TIMED_REQUESTS = new AtomicInteger();
+
+    private volatile boolean enabled;
+    private long startedAt;
+    private final Map<String, Long> stages = new LinkedHashMap<>();
+
+    /**
+     * The timing of the current request, or a no-op when there is none. The returned object is
+     * the instance itself rather than the CDI proxy, so it can be kept and used from callbacks
+     * running after the request thread has moved on.
+     */
+    public static ServerTiming current() {
+        if (TIMED_REQUESTS.get() == 0) {
+            return DISABLED;
+        }
+        ArcContainer container = Arc.container();
+        if (container == null || !container.requestContext().isActive()) {
+            return DISABLED;
+        }
+        return container.instance(ServerTiming.class).get().self();
+    }
+
+    ServerTiming self() {
+        return enabled ? this : DISABLED;
+    }
+
+    void enable() {
+        if (enabled) {
+            return;
+        }
+        startedAt = System.nanoTime();
+        enabled = true;
+        TIMED_REQUESTS.incrementAndGet();
+    }
+
+    @PreDestroy
+    void release() {
+        if (enabled) {
+            TIMED_REQUESTS.decrementAndGet();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public <T> T time(String stage, Supplier<T> work) {
+        if (!enabled) {
+            return work.get();
+        }
+        long start = System.nanoTime();
+        try {
+            return work.get();
+        } finally {
+            add(stage, System.nanoTime() - start);
+        }
+    }
+
+    public void time(String stage, Runnable work) {
+        time(stage, () -> {
+            work.run();
+            return null;
+        });
+    }
+
+    // Repeated stages (two queries, hash then rehash) add up under one name
+    public synchronized void add(String stage, long nanos) {
+        if (enabled) {
+            stages.merge(stage, nanos, Long::sum);
+        }
+    }
+
+    // e.g. db;dur=1.8, pokemon;dur=31.2, enchere;dur=27.4, json;dur=0.4, total;dur=35.9
+    synchronized String header() {
+        StringBuilder header = new StringBuilder();
+        for (Map.Entry<String, Long> stage : stages.entrySet()) {
+            append(header, stage.getKey(), stage.getValue());
+        }
+        append(header, "total", System.nanoTime() - startedAt);
+        return header.toString();
+    }
+
+    private static void append(StringBuilder header, String stage, long nanos) {
+        if (!header.isEmpty()) {
+            header.append(", ");
+        }
+        header.append(stage).append(";dur=").append(String.format(Locale.ROOT, "%.1f", nanos / 1e6));
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.user;
+
+import jakarta.inject.Inject;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.container.ContainerRequestFilter;
+import jakarta.ws.rs.container.ContainerResponseContext;
+import jakarta.ws.rs.container.ContainerResponseFilter;
+import jakarta.ws.rs.core.SecurityContext;
+import jakarta.ws.rs.ext.Provider;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Turns {@link ServerTiming} on for every request of the configured roles, or for requests that
+ * carry the opt-in header from a caller in the header roles, and writes the collected stages to
+ * the Server-Timing response header. The header alone, from anyone, is only honoured when
+ * allow-request-header is set, as in dev and test: timings tell an anonymous caller how long
+ * bcrypt and the database took.
+ */
+@Provider
+public class ServerTimingFilter implements ContainerRequestFilter, ContainerResponseFilter {
+
+    static final String REQUEST_HEADER = "X-Server-Timing";
+
+    // Set on the requests timing was switched on for, so the others never create the ServerTiming bean
+    private static final String TIMED_PROPERTY = ServerTiming.class.getName();
+
+    @ConfigProperty(name = "user.server-timing.enabled", defaultValue = "true")
+    boolean enabled;
+
+    @ConfigProperty(name = "user.server-timing.allow-request-header", defaultValue = "false")
+    boolean allowRequestHeader;
+
+    @ConfigProperty(name = "user.server-timing.header-roles", defaultValue = "Admin")
+    List<String> headerRoles;
+
+    @ConfigProperty(name = "user.server-timing.roles")
+    Optional<List<String>> roles;
+
+    @Inject
+    ServerTiming serverTiming;
+
+    @Override
+    public void filter(ContainerRequestContext request) {
+        SecurityContext securityContext = request.getSecurityContext();
+        if (enabled && (requested(request, securityContext) || inRole(securityContext, roles.orElse(List.of())))) {
+            serverTiming.enable();
+            request.setProperty(TIMED_PROPERTY, Boolean.TRUE);
+        }
+    }
+
+    @Override
+    public void filter(ContainerRequestContext request, ContainerResponseContext response) {
+        if (request.getProperty(TIMED_PROPERTY) != null) {
+            response.getHeaders().putSingle("Server-Timing", serverTiming.header());
+        }
+    }
+
+    private boolean requested(ContainerRequestContext request, SecurityContext securityContext) {
+        return request.getHeaderString(REQUEST_HEADER) != null
+                && (allowRequestHeader || inRole(securityContext, headerRoles));
+    }
+
+    private static boolean inRole(SecurityContext securityContext, List<String> roles) {
+        if (roles.isEmpty() || securityContext == null || securityContext.getUserPrincipal() == null) {
+            return false;
+        }
+        for (String role : roles) {
+            if (securityContext.isUserInRole(role)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -3,22 +3,35 @@ package com.example.user;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotNull;
+import org.hibernate.annotations.DynamicUpdate;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
 
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
+@Cacheable
+@NaturalIdCache // Login resolves username -> id from the cache, then the entity from the entity region
+@DynamicUpdate // Only write changed columns so profile edits never overwrite a concurrent limCoins update
 @Table(name = "users", uniqueConstraints = {
         @UniqueConstraint(columnNames = "username"),
         @UniqueConstraint(columnNames = "email")
 })
 public class User {
 
+    // Ids come from a pooled sequence so Hibernate can batch inserts, IDENTITY disables that.
+    // A database whose rows predate the sequence needs it moved past them once, a whole
+    // allocation block beyond MAX(id): ALTER SEQUENCE users_seq RESTART WITH <MAX(id) + 51>
+    public static final int ID_ALLOCATION_SIZE = 50;
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_seq")
+    @SequenceGenerator(name = "users_seq", sequenceName = "users_seq", allocationSize = ID_ALLOCATION_SIZE)
     private Long id;
 
     @NotNull
+    @NaturalId(mutable = true)
     @Column(nullable = false, unique = true)
     private String username;
 
@@ -42,6 +55,10 @@ public class User {
     @Transient
     private List<Enchere> encheres = new ArrayList<>();
 
+    // Set only when a downstream service was unavailable and the lists are the last known ones
+    @Transient
+    private Boolean enrichmentStale;
+
     // Getter and Setter for role
 
     public List<Pokemon> getPokemons() {
@@ -60,6 +77,14 @@ public class User {
         this.encheres = encheres;
     }
 
+    public Boolean getEnrichmentStale() {
+        return enrichmentStale;
+    }
+
+    public void setEnrichmentStale(Boolean enrichmentStale) {
+        this.enrichmentStale = enrichmentStale;
+    }
+
     public String getRole() {
         return role;
     }
@@ -0,0 +1,50 @@
+package com.example.user;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+import org.hibernate.SessionFactory;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Keeps the Hibernate second-level cache honest when balances are changed with plain JDBC,
+ * which Hibernate does not see.
+ */
+@ApplicationScoped
+public class UserCacheInvalidator {
+
+    @Inject
+    SessionFactory sessionFactory;
+
+    @Inject
+    TransactionSynchronizationRegistry transactionRegistry;
+
+    public void balancesChanged(Collection<Long> userIds) {
+        List<Long> ids = List.copyOf(userIds);
+        evict(ids);
+        // Evict again once the transaction ends, a concurrent reader may have cached the old row meanwhile
+        if (transactionRegistry.getTransactionStatus() == Status.STATUS_ACTIVE) {
+            transactionRegistry.registerInterposedSynchronization(new Synchronization() {
+                @Override
+                public void beforeCompletion() {
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    evict(ids);
+                }
+            });
+        }
+    }
+
+    private void evict(List<Long> userIds) {
+        org.hibernate.Cache cache = sessionFactory.getCache();
+        for (Long userId : userIds) {
+            cache.evictEntityData(User.class, userId);
+        }
+    }
+}
@@ -0,0 +1,468 @@
+package com.example.user;
+
+import com.example.utils.BatchLoader;
+import com.example.utils.SingleFlight;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import io.smallrye.mutiny.Uni;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.faulttolerance.exceptions.BulkheadException;
+import org.eclipse.microprofile.faulttolerance.exceptions.CircuitBreakerOpenException;
+import org.eclipse.microprofile.faulttolerance.exceptions.TimeoutException;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Loads the Pokémon and Enchère lists that decorate a user profile. Lists are cached per user
+ * for a short TTL and dropped whenever this service changes them through the remote clients.
+ * The clients carry their own timeouts, bulkheads and circuit breakers; when a call fails,
+ * profiles fall back to the last lists seen for that user and are flagged as stale. With
+ * batching on, concurrent lookups are coalesced into one bulk call per short window.
+ */
+@ApplicationScoped
+public class UserEnrichmentService {
+
+    @Inject
+    PokemonClient pokemonClient;
+
+    @Inject
+    EnchereClient enchereClient;
+
+    @Inject
+    MeterRegistry registry;
+
+    @ConfigProperty(name = "user.enrichment.cache.max-size", defaultValue = "10000")
+    long cacheMaxSize;
+
+    @ConfigProperty(name = "user.enrichment.cache.ttl", defaultValue = "30s")
+    Duration cacheTtl;
+
+    @ConfigProperty(name = "user.enrichment.last-known.max-size", defaultValue = "100000")
+    long lastKnownMaxSize;
+
+    @ConfigProperty(name = "user.enrichment.last-known.ttl", defaultValue = "24h")
+    Duration lastKnownTtl;
+
+    private Cache<Long, List<Pokemon>> pokemonCache;
+    private Cache<Long, List<Enchere>> enchereCache;
+
+    // Outlive the caches above and are never invalidated, they only serve as a fallback
+    private Cache<Long, List<Pokemon>> lastKnownPokemons;
+    private Cache<Long, List<Enchere>> lastKnownEncheres;
+
+    private Invalidations pokemonInvalidations;
+    private Invalidations enchereInvalidations;
+
+    @ConfigProperty(name = "user.enrichment.batch.enabled", defaultValue = "false")
+    boolean batchingEnabled;
+
+    @ConfigProperty(name = "user.enrichment.batch.window", defaultValue = "5ms")
+    Duration batchWindow;
+
+    @ConfigProperty(name = "user.enrichment.batch.max-size", defaultValue = "100")
+    int batchMaxSize;
+
+    private final AtomicLong pokemonFallbacks = new AtomicLong();
+    private final AtomicLong enchereFallbacks = new AtomicLong();
+
+    @ConfigProperty(name = "user.enrichment.single-flight.enabled", defaultValue = "true")
+    boolean singleFlightEnabled;
+
+    private final SingleFlight<Long, Profile> profileFlights = new SingleFlight<>();
+
+    // downstream.calls timers per call site, one per outcome, built once in init()
+    private CallTimers pokemonLookupTimers;
+    private CallTimers pokemonBulkLookupTimers;
+    private CallTimers addPokemonTimers;
+    private CallTimers enchereLookupTimers;
+    private CallTimers enchereBulkLookupTimers;
+    private CallTimers placeBidTimers;
+
+    private ScheduledExecutorService batchScheduler;
+    private BatchLoader<List<Pokemon>> pokemonLoader;
+    private BatchLoader<List<Enchere>> enchereLoader;
+
+    @PostConstruct
+    void init() {
+        pokemonCache = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfterWrite(cacheTtl)
+                .recordStats()
+                .build();
+        enchereCache = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfterWrite(cacheTtl)
+                .recordStats()
+                .build();
+        lastKnownPokemons = Caffeine.newBuilder()
+                .maximumSize(lastKnownMaxSize)
+                .expireAfterWrite(lastKnownTtl)
+                .build();
+        lastKnownEncheres = Caffeine.newBuilder()
+                .maximumSize(lastKnownMaxSize)
+                .expireAfterWrite(lastKnownTtl)
+                .build();
+
+        pokemonInvalidations = new Invalidations(cacheMaxSize);
+        enchereInvalidations = new Invalidations(cacheMaxSize);
+
+        CaffeineCacheMetrics.monitor(registry, pokemonCache, "enrichment.pokemons");
+        CaffeineCacheMetrics.monitor(registry, enchereCache, "enrichment.encheres");
+        FunctionCounter.builder("enrichment.fallbacks", pokemonFallbacks, AtomicLong::get)
+                .tag("service", "pokemon").register(registry);
+        FunctionCounter.builder("enrichment.fallbacks", enchereFallbacks, AtomicLong::get)
+                .tag("service", "enchere").register(registry);
+        FunctionCounter.builder("enrichment.single-flight.calls", profileFlights, SingleFlight::calls)
+                .register(registry);
+        FunctionCounter.builder("enrichment.single-flight.loads", profileFlights, SingleFlight::executions)
+                .register(registry);
+
+        pokemonLookupTimers = new CallTimers(registry, "pokemon", "lookup");
+        pokemonBulkLookupTimers = new CallTimers(registry, "pokemon", "bulk-lookup");
+        addPokemonTimers = new CallTimers(registry, "pokemon", "add-pokemon");
+        enchereLookupTimers = new CallTimers(registry, "enchere", "lookup");
+        enchereBulkLookupTimers = new CallTimers(registry, "enchere", "bulk-lookup");
+        placeBidTimers = new CallTimers(registry, "enchere", "place-bid");
+
+        if (batchingEnabled) {
+            batchScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "enrichment-batcher");
+                thread.setDaemon(true);
+                return thread;
+            });
+            pokemonLoader = new BatchLoader<>(batchWindow, batchMaxSize,
+                    ids -> timed(pokemonBulkLookupTimers, () -> pokemonClient.getPokemonsByUserIds(joinIds(ids))),
+                    batchScheduler);
+            enchereLoader = new BatchLoader<>(batchWindow, batchMaxSize,
+                    ids -> timed(enchereBulkLookupTimers, () -> enchereClient.getEncheresByUserIds(joinIds(ids))),
+                    batchScheduler);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (batchScheduler != null) {
+            batchScheduler.shutdown();
+        }
+    }
+
+    public User enrich(User user) {
+        return enrichAsync(user).await().indefinitely();
+    }
+
+    public Uni<User> enrichAsync(User user) {
+        ServerTiming timing = ServerTiming.current();
+        // Concurrent requests for the same profile share one pair of downstream calls
+        Uni<Profile> profile = singleFlightEnabled
+                ? profileFlights.run(user.getId(), () -> loadProfile(user.getId()))
+                : loadProfile(user.getId());
+        return profile.map(loaded -> {
+            // A request that joined another one's load reports the time of that shared load
+            timing.add("pokemon", loaded.pokemonNanos);
+            timing.add("enchere", loaded.enchereNanos);
+            user.setPokemons(loaded.pokemons);
+            user.setEncheres(loaded.encheres);
+            if (loaded.stale) {
+                user.setEnrichmentStale(true);
+            }
+            return user;
+        });
+    }
+
+    private Uni<Profile> loadProfile(Long id) {
+        // Both downstream calls are in flight at the same time, each with its own deadline,
+        // so the wait is bounded by the slower of the two instead of their sum
+        AtomicBoolean stale = new AtomicBoolean();
+        AtomicLong pokemonNanos = new AtomicLong();
+        AtomicLong enchereNanos = new AtomicLong();
+        Uni<List<Pokemon>> pokemons = measured(pokemonsOf(id).onFailure().recoverWithItem(failure -> {
+            pokemonFallbacks.incrementAndGet();
+            stale.set(true);
+            return lastKnown(lastKnownPokemons, id);
+        }), pokemonNanos);
+        Uni<List<Enchere>> encheres = measured(encheresOf(id).onFailure().recoverWithItem(failure -> {
+            enchereFallbacks.incrementAndGet();
+            stale.set(true);
+            return lastKnown(lastKnownEncheres, id);
+        }), enchereNanos);
+        return Uni.combine().all().unis(pokemons, encheres)
+                .asTuple()
+                .map(result -> new Profile(result.getItem1(), result.getItem2(), stale.get(),
+                        pokemonNanos.get(), enchereNanos.get()));
+    }
+
+    // Wall time of one lookup, fallback included, for the Server-Timing header
+    private static <T> Uni<T> measured(Uni<T> lookup, AtomicLong nanos) {
+        return Uni.createFrom().deferred(() -> {
+            long start = System.nanoTime();
+            return lookup.onItemOrFailure().invoke((item, failure) -> nanos.set(System.nanoTime() - start));
+        });
+    }
+
+    // Cached lists are shared between requests, so they are handed out read-only. Unlike enrich,
+    // failures reach the caller: selling must not act on a stale list
+    public Uni<List<Pokemon>> pokemonsOf(Long userId) {
+        List<Pokemon> cached = pokemonCache.getIfPresent(userId);
+        if (cached != null) {
+            return Uni.createFrom().item(cached);
+        }
+        return fetchPokemons(userId);
+    }
+
+    // Skips the cache, for writes that must decide on what the Pokémon service holds now rather
+    // than on a list up to cache-ttl old. The answer still refreshes the cache
+    public Uni<List<Pokemon>> freshPokemonsOf(Long userId) {
+        return Uni.createFrom().deferred(() -> fetchPokemons(userId));
+    }
+
+    private Uni<List<Pokemon>> fetchPokemons(Long userId) {
+        long loadStarted = pokemonInvalidations.now();
+        Uni<List<Pokemon>> fetched = batchingEnabled
+                ? Uni.createFrom().deferred(() -> pokemonLoader.load(userId))
+                : timed(pokemonLookupTimers, () -> pokemonClient.getPokemonsByUserIdAsync(userId));
+        return fetched
+                .map(pokemons -> pokemons == null ? List.<Pokemon>of() : List.copyOf(pokemons))
+                .invoke(pokemons -> store(pokemonCache, lastKnownPokemons, pokemonInvalidations,
+                        userId, loadStarted, pokemons));
+    }
+
+    public Uni<List<Enchere>> encheresOf(Long userId) {
+        List<Enchere> cached = enchereCache.getIfPresent(userId);
+        if (cached != null) {
+            return Uni.createFrom().item(cached);
+        }
+        long loadStarted = enchereInvalidations.now();
+        Uni<List<Enchere>> fetched = batchingEnabled
+                ? Uni.createFrom().deferred(() -> enchereLoader.load(userId))
+                : timed(enchereLookupTimers, () -> enchereClient.getEncheresByUserIdAsync(userId));
+        return fetched
+                .map(encheres -> encheres == null ? List.<Enchere>of() : List.copyOf(encheres))
+                .invoke(encheres -> store(enchereCache, lastKnownEncheres, enchereInvalidations,
+                        userId, loadStarted, encheres));
+    }
+
+    // A load that started before this user's lists were last invalidated may hold the lists from
+    // before the write, so it is handed to its caller but not cached. compute holds the entry
+    // while checking: an invalidation racing with it removes the lists right after
+    private static <T> void store(Cache<Long, List<T>> cache, Cache<Long, List<T>> lastKnown,
+                                  Invalidations invalidations, Long userId, long loadStarted, List<T> lists) {
+        cache.asMap().compute(userId, (id, current) -> {
+            if (invalidations.since(id, loadStarted)) {
+                return current;
+            }
+            lastKnown.put(id, lists);
+            return lists;
+        });
+    }
+
+    public void addPokemonToUser(Long userId, Pokemon pokemon) {
+        // Notify the Pokémon microservice
+        timedCall(addPokemonTimers, () -> pokemonClient.addPokemonToUser(userId, pokemon));
+        dropPokemons(userId);
+    }
+
+    public void placeBid(Long userId, Enchere enchere) {
+        // Notify the Enchère microservice
+        timedCall(placeBidTimers, () -> enchereClient.placeBid(userId, enchere));
+        dropEncheres(userId);
+    }
+
+    public void invalidatePokemons(Long userId) {
+        dropPokemons(userId);
+    }
+
+    public void invalidate(Long userId) {
+        dropPokemons(userId);
+        dropEncheres(userId);
+    }
+
+    // Stamped before the entry goes, so a load still running sees the stamp when it tries to store
+    private void dropPokemons(Long userId) {
+        pokemonInvalidations.invalidated(userId);
+        pokemonCache.invalidate(userId);
+        profileFlights.forget(userId);
+    }
+
+    private void dropEncheres(Long userId) {
+        enchereInvalidations.invalidated(userId);
+        enchereCache.invalidate(userId);
+        profileFlights.forget(userId);
+    }
+
+    public Map<String, Object> cacheStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("pokemons", describe(pokemonCache.stats(), pokemonCache.estimatedSize()));
+        stats.put("encheres", describe(enchereCache.stats(), enchereCache.estimatedSize()));
+        stats.put("pokemonFallbacks", pokemonFallbacks.get());
+        stats.put("enchereFallbacks", enchereFallbacks.get());
+        Map<String, Object> flights = new LinkedHashMap<>();
+        flights.put("calls", profileFlights.calls());
+        flights.put("loads", profileFlights.executions());
+        flights.put("coalescingRatio", profileFlights.coalescingRatio());
+        flights.put("inFlight", profileFlights.inFlight());
+        stats.put("singleFlight", flights);
+        if (batchingEnabled) {
+            stats.put("pokemonBatches", describe(pokemonLoader));
+            stats.put("enchereBatches", describe(enchereLoader));
+        }
+        return stats;
+    }
+
+    // One timer per downstream call, tagged with how it ended so timeouts and open circuits
+    // show up separately from plain errors
+    private <T> Uni<T> timed(CallTimers timers, Supplier<Uni<T>> call) {
+        return Uni.createFrom().deferred(() -> {
+            Timer.Sample sample = Timer.start(registry);
+            return call.get().onItemOrFailure().invoke((item, failure) ->
+                    sample.stop(timers.of(failure)));
+        });
+    }
+
+    private void timedCall(CallTimers timers, Runnable call) {
+        Timer.Sample sample = Timer.start(registry);
+        try {
+            call.run();
+            sample.stop(timers.of(null));
+        } catch (RuntimeException e) {
+            sample.stop(timers.of(e));
+            throw e;
+        }
+    }
+
+    private static String outcome(Throwable failure) {
+        if (failure == null) {
+            return "success";
+        }
+        if (failure instanceof TimeoutException) {
+            return "timeout";
+        }
+        if (failure instanceof CircuitBreakerOpenException) {
+            return "circuit_open";
+        }
+        if (failure instanceof BulkheadException) {
+            return "bulkhead_full";
+        }
+        return "error";
+    }
+
+    private static Map<String, Object> describe(BatchLoader<?> loader) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("requestedUsers", loader.requestedKeys());
+        result.put("bulkCalls", loader.dispatchedBatches());
+        return result;
+    }
+
+    private static String joinIds(Set<Long> ids) {
+        return ids.stream().map(String::valueOf).collect(Collectors.joining(","));
+    }
+
+    // Without any earlier success for this user the stale lists are empty
+    private static <T> List<T> lastKnown(Cache<Long, List<T>> lastKnown, Long userId) {
+        List<T> lists = lastKnown.getIfPresent(userId);
+        return lists != null ? lists : List.of();
+    }
+
+    private static Map<String, Object> describe(CacheStats stats, long size) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("size", size);
+        result.put("hits", stats.hitCount());
+        result.put("misses", stats.missCount());
+        result.put("evictions", stats.evictionCount());
+        result.put("hitRate", stats.hitRate());
+        return result;
+    }
+
+    // When each user's lists were last invalidated, on a clock shared by all users. Bounded like
+    // the caches: a stamp evicted for size raises the floor that stands in for untracked users,
+    // which at worst keeps a few more loads out of the cache
+    private static final class Invalidations {
+        private final AtomicLong clock = new AtomicLong();
+        private final AtomicLong floor = new AtomicLong();
+        private final Cache<Long, Long> stamps;
+
+        private Invalidations(long maxSize) {
+            stamps = Caffeine.newBuilder()
+                    .maximumSize(maxSize)
+                    .evictionListener((Long userId, Long stamp, RemovalCause cause) -> {
+                        if (stamp != null) {
+                            floor.accumulateAndGet(stamp, Math::max);
+                        }
+                    })
+                    .build();
+        }
+
+        private long now() {
+            return clock.get();
+        }
+
+        private void invalidated(Long userId) {
+            stamps.put(userId, clock.incrementAndGet());
+        }
+
+        private boolean since(Long userId, long loadStarted) {
+            Long stamp = stamps.getIfPresent(userId);
+            return (stamp != null ? stamp : floor.get()) > loadStarted;
+        }
+    }
+
+    // Lists are immutable, so one loaded profile can be handed to every waiting request
+    private static final class Profile {
+        private final List<Pokemon> pokemons;
+        private final List<Enchere> encheres;
+        private final boolean stale;
+        private final long pokemonNanos;
+        private final long enchereNanos;
+
+        private Profile(List<Pokemon> pokemons, List<Enchere> encheres, boolean stale,
+                        long pokemonNanos, long enchereNanos) {
+            this.pokemons = pokemons;
+            this.encheres = encheres;
+            this.stale = stale;
+            this.pokemonNanos = pokemonNanos;
+            this.enchereNanos = enchereNanos;
+        }
+    }
+
+    private static final class CallTimers {
+        private static final List<String> OUTCOMES =
+                List.of("success", "timeout", "circuit_open", "bulkhead_full", "error");
+
+        private final Map<String, Timer> byOutcome = new HashMap<>();
+
+        private CallTimers(MeterRegistry registry, String service, String operation) {
+            for (String outcome : OUTCOMES) {
+                byOutcome.put(outcome, Timer.builder("downstream.calls")
+                        .tag("service", service)
+                        .tag("operation", operation)
+                        .tag("outcome", outcome)
+                        .publishPercentileHistogram()
+                        .register(registry));
+            }
+        }
+
+        private Timer of(Throwable failure) {
+            return byOutcome.get(outcome(failure));
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package com.example.user;
+
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.json.JsonNumber;
+import jakarta.json.JsonObject;
+import jakarta.json.JsonString;
+import jakarta.json.JsonValue;
+import jakarta.json.bind.Jsonb;
+import jakarta.json.bind.JsonbException;
+import jakarta.persistence.EntityManager;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Streams users from NDJSON and inserts them chunk by chunk: duplicates are checked with one
+ * query per chunk, passwords are hashed in parallel on the PasswordHasher pool and rows go out
+ * in JDBC batches. A chunk the database refuses is retried row by row, so only the offending
+ * lines are reported. Imported users keep their limCoins, new ones start with 1000.
+ */
+@ApplicationScoped
+public class UserImportService {
+
+    private static final int DEFAULT_LIM_COINS = 1000;
+
+    @Inject
+    EntityManager em;
+
+    @Inject
+    Jsonb jsonb;
+
+    @Inject
+    LimCoinsService limCoinsService;
+
+    @Inject
+    LoginThrottle loginThrottle;
+
+    @Inject
+    PasswordHasher passwordHasher;
+
+    @Inject
+    UserUniquenessService uniquenessService;
+
+    @ConfigProperty(name = "user.import.chunk-size", defaultValue = "1000")
+    int chunkSize;
+
+    public ImportReport importUsers(InputStream input) throws IOException {
+        ImportReport report = new ImportReport();
+        List<PendingUser> chunk = new ArrayList<>(chunkSize);
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+
+        long lineNumber = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            User user;
+            try {
+                user = toUser(jsonb.fromJson(line, JsonObject.class));
+            } catch (JsonbException | ClassCastException e) {
+                report.addError(lineNumber, "Invalid JSON: " + e.getMessage());
+                continue;
+            } catch (IllegalArgumentException e) {
+                report.addError(lineNumber, e.getMessage());
+                continue;
+            }
+            chunk.add(new PendingUser(lineNumber, user));
+            if (chunk.size() == chunkSize) {
+                importChunk(chunk, report);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            importChunk(chunk, report);
+        }
+        return report;
+    }
+
+    private void importChunk(List<PendingUser> chunk, ImportReport report) {
+        List<PendingUser> accepted = rejectDuplicates(chunk, report);
+        if (accepted.isEmpty()) {
+            return;
+        }
+
+        hashPasswords(accepted);
+
+        try {
+            QuarkusTransaction.requiringNew().run(() -> {
+                for (PendingUser pending : accepted) {
+                    persist(pending.user);
+                }
+                em.flush();
+                em.clear();
+            });
+            report.addImported(accepted.size());
+        } catch (RuntimeException e) {
+            // A concurrent insert can still hit the unique constraints, find the rows that did
+            importOneByOne(accepted, report);
+        }
+    }
+
+    private void importOneByOne(List<PendingUser> rows, ImportReport report) {
+        for (PendingUser pending : rows) {
+            User user = pending.user;
+            try {
+                QuarkusTransaction.requiringNew().run(() -> {
+                    persist(user);
+                    em.flush();
+                });
+                report.addImported(1);
+            } catch (RuntimeException e) {
+                report.addError(pending.line,
+                        uniquenessService.translate(e, user.getUsername(), user.getEmail(), null).getMessage());
+            }
+        }
+    }
+
+    private void persist(User user) {
+        // A rolled-back chunk leaves the ids it was given
+        user.setId(null);
+        em.persist(user);
+        limCoinsService.accountCreated(user);
+        loginThrottle.usernameTaken(user.getUsername());
+        uniquenessService.taken(user.getUsername(), user.getEmail());
+    }
+
+    // Only the fields an import may set; limCoins is kept when given so balances survive a migration
+    private static User toUser(JsonObject json) {
+        if (json == null) {
+            throw new IllegalArgumentException("All fields are required.");
+        }
+        User user = new User();
+        user.setUsername(text(json, "username"));
+        user.setEmail(text(json, "email"));
+        user.setPassword(text(json, "password"));
+        if (user.getUsername() == null || user.getEmail() == null || user.getPassword() == null) {
+            throw new IllegalArgumentException("All fields are required.");
+        }
+        String role = text(json, "role");
+        // Set role to "User" if not provided
+        user.setRole(role == null || role.isEmpty() ? "User" : role);
+        user.setLimCoins(limCoins(json.get("limCoins")));
+        return user;
+    }
+
+    private static String text(JsonObject json, String field) {
+        JsonValue value = json.get(field);
+        if (value == null || value.getValueType() == JsonValue.ValueType.NULL) {
+            return null;
+        }
+        if (!(value instanceof JsonString string)) {
+            throw new IllegalArgumentException(field + " must be a string.");
+        }
+        return string.getString();
+    }
+
+    private static int limCoins(JsonValue value) {
+        if (value == null || value.getValueType() == JsonValue.ValueType.NULL) {
+            return DEFAULT_LIM_COINS;
+        }
+        if (value instanceof JsonNumber number && number.isIntegral()) {
+            BigInteger coins = number.bigIntegerValue();
+            if (coins.signum() >= 0 && coins.bitLength() < Integer.SIZE) {
+                return coins.intValue();
+            }
+        }
+        throw new IllegalArgumentException("limCoins must be a whole number between 0 and " + Integer.MAX_VALUE + ".");
+    }
+
+    // At most two queries per chunk replace the two COUNT queries per row of the single-user endpoint,
+    // and only values the Bloom filters cannot rule out are sent
+    private List<PendingUser> rejectDuplicates(List<PendingUser> chunk, ImportReport report) {
+        Set<String> usernames = new HashSet<>();
+        Set<String> emails = new HashSet<>();
+        for (PendingUser pending : chunk) {
+            if (uniquenessService.mightContainUsername(pending.user.getUsername())) {
+                usernames.add(pending.user.getUsername());
+            }
+            if (uniquenessService.mightContainEmail(pending.user.getEmail())) {
+                emails.add(pending.user.getEmail());
+            }
+        }
+        Set<String> takenUsernames = usernames.isEmpty() ? new HashSet<>() : new HashSet<>(em.createQuery(
+                        "SELECT u.username FROM User u WHERE u.username IN :usernames", String.class)
+                .setParameter("usernames", usernames)
+                .getResultList());
+        Set<String> takenEmails = emails.isEmpty() ? new HashSet<>() : new HashSet<>(em.createQuery(
+                        "SELECT u.email FROM User u WHERE u.email IN :emails", String.class)
+                .setParameter("emails", emails)
+                .getResultList());
+
+        List<PendingUser> accepted = new ArrayList<>(chunk.size());
+        for (PendingUser pending : chunk) {
+            // add() doubles as the check for duplicates inside the file
+            if (!takenUsernames.add(pending.user.getUsername())) {
+                report.addError(pending.line, "Username already exists.");
+            } else if (!takenEmails.add(pending.user.getEmail())) {
+                report.addError(pending.line, "Email already exists.");
+            } else {
+                accepted.add(pending);
+            }
+        }
+        return accepted;
+    }
+
+    private void hashPasswords(List<PendingUser> users) {
+        List<String> passwords = users.stream().map(pending -> pending.user.getPassword()).toList();
+        List<String> hashes = passwordHasher.hashAll(passwords);
+        for (int i = 0; i < users.size(); i++) {
+            users.get(i).user.setPassword(hashes.get(i));
+        }
+    }
+
+    private static final class PendingUser {
+        private final long line;
+        private final User user;
+
+        private PendingUser(long line, User user) {
+            this.line = line;
+            this.user = user;
+        }
+    }
+}
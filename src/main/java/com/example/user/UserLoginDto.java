@@ -1,5 +1,8 @@
 package com.example.user;
 
+import io.quarkus.runtime.annotations.RegisterForReflection;
+
+@RegisterForReflection
 public class UserLoginDto {
     private String username;
     private String password;
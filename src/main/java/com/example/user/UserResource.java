@@ -1,57 +1,111 @@
 package com.example.user;
 
 import com.example.user.exceptions.UserNotFoundException;
+import io.smallrye.common.annotation.Blocking;
+import io.smallrye.common.annotation.RunOnVirtualThread;
+import io.smallrye.mutiny.Uni;
+import io.vertx.core.http.HttpServerRequest;
 import jakarta.annotation.security.RolesAllowed;
 import jakarta.inject.Inject;
+import jakarta.json.bind.Jsonb;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.Context;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
 import jakarta.ws.rs.core.SecurityContext;
+import jakarta.ws.rs.core.StreamingOutput;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 
+import java.net.URI;
 import java.util.List;
 
 @Path("/users")
 @Produces(MediaType.APPLICATION_JSON)
 @Consumes(MediaType.APPLICATION_JSON)
+@RunOnVirtualThread // Worker pool instead when quarkus.virtual-threads.enabled=false
 public class UserResource {
 
+    private static final int MAX_COIN_BATCH_SIZE = 1000;
+    private static final int MAX_LEADERBOARD_PAGE_SIZE = 100;
+    private static final int DEFAULT_USER_PAGE_SIZE = 100;
+    private static final int MAX_USER_PAGE_SIZE = 1000;
+
     @Inject
     UserService userService;
 
+    @Inject
+    LoginThrottle loginThrottle;
+
+    @Inject
+    Jsonb jsonb;
+
+    // false restores the classic behaviour, kept for comparison runs (BlockingUserLoadTest)
+    @ConfigProperty(name = "user.profile.non-blocking", defaultValue = "true")
+    boolean nonBlockingProfile;
+
     @Context
     SecurityContext securityContext;
 
     @GET
     @RolesAllowed("Admin") // Only Admins can access the list of all users
-    public List<User> getAllUsers() {
-        return userService.getAllUsers();
+    public Response getAllUsers(@QueryParam("after") Long after, @QueryParam("limit") Integer limit) {
+        // Without paging parameters the full list is returned as before
+        if (after == null && limit == null) {
+            return Response.ok(userService.getAllUsers()).build();
+        }
+        int pageSize = limit == null ? DEFAULT_USER_PAGE_SIZE : limit;
+        if (pageSize < 1 || pageSize > MAX_USER_PAGE_SIZE) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity("Limit must be between 1 and " + MAX_USER_PAGE_SIZE + ".")
+                    .build();
+        }
+        return Response.ok(userService.getUsersPage(after, pageSize)).build();
+    }
+
+    @GET
+    @Path("/stream")
+    @Produces("application/x-ndjson")
+    @RolesAllowed("Admin") // Full dump, one JSON user per line
+    public Response streamAllUsers() {
+        StreamingOutput stream = userService::streamAllUsers;
+        return Response.ok(stream).build();
     }
 
     @GET
     @Path("/{id}")
     @RolesAllowed({"User", "Admin"}) // Both Users and Admins can access this
-    public Response getUserById(@PathParam("id") Long id) {
+    @Blocking // The lookup uses JDBC, the worker is released while the Pokémon/Enchère lists load
+    public Uni<Response> getUserById(@PathParam("id") Long id) {
         String authenticatedUsername = securityContext.getUserPrincipal().getName();
 
-        // Find the user being requested
-        User user = userService.findUserById(id);
-        if (user == null) {
-            return Response.status(Response.Status.NOT_FOUND).entity("User not found").build();
-        }
+        // Find the user being requested, the ownership check only needs the local entity
+        User user = userService.findUserEntityById(id);
 
         // Check if the authenticated user matches the requested user or is an Admin
         if (!user.getUsername().equals(authenticatedUsername) && !securityContext.isUserInRole("Admin")) {
-            return Response.status(Response.Status.FORBIDDEN).entity("Access denied").build();
+            return Uni.createFrom().item(Response.status(Response.Status.FORBIDDEN).entity("Access denied").build());
         }
 
-        return Response.ok(user).build();
+        // With Server-Timing on, the body is serialized here so the header can include it
+        ServerTiming timing = ServerTiming.current();
+        Uni<User> profile = userService.enrichUserAsync(user);
+        if (!nonBlockingProfile) {
+            // The worker thread waits for both remote lists, as before the switch to Uni
+            profile = Uni.createFrom().item(profile.await().indefinitely());
+        }
+        return profile.map(enriched -> timing.isEnabled()
+                ? Response.ok(timing.time("json", () -> jsonb.toJson(enriched))).build()
+                : Response.ok(enriched).build());
     }
 
     @POST
     @RolesAllowed("Admin") // Only Admins can add new users
     public Response addUser(User user) {
-        userService.addUser(user);
+        try {
+            userService.addUser(user);
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
+        }
         return Response.status(Response.Status.CREATED).entity(user).build();
     }
 
@@ -66,6 +120,8 @@ public class UserResource {
             return Response.status(Response.Status.NOT_FOUND).entity(e.getMessage()).build();
         } catch (SecurityException e) {
             return Response.status(Response.Status.FORBIDDEN).entity(e.getMessage()).build();
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
         } catch (Exception e) {
             return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
                     .entity("An unexpected error occurred: " + e.getMessage())
@@ -73,28 +129,6 @@ public class UserResource {
         }
     }
 
-
-    @POST
-    @Path("/{id}/deduct-coins")
-    @RolesAllowed({"User", "Admin"}) // Both Users and Admins can deduct coins
-    public Response deductCoins(@PathParam("id") Long id, @QueryParam("amount") int amount) {
-        String authenticatedUsername = securityContext.getUserPrincipal().getName();
-
-        // Find the user
-        User user = userService.findUserById(id);
-        if (user == null) {
-            return Response.status(Response.Status.NOT_FOUND).entity("User not found").build();
-        }
-
-        // Check if the authenticated user matches the requested user or is an Admin
-        if (!user.getUsername().equals(authenticatedUsername) && !securityContext.isUserInRole("Admin")) {
-            return Response.status(Response.Status.FORBIDDEN).entity("Access denied").build();
-        }
-
-        userService.deductLimCoins(id, amount);
-        return Response.ok("Coins deducted successfully").build();
-    }
-
     @POST
     @Path("/register")
     public Response register(User user) {
@@ -105,9 +139,13 @@ public class UserResource {
             }
 
             userService.registerUser(user);
-            return Response.status(Response.Status.CREATED).entity("User registered successfully!").build();
+            return Response.created(URI.create("/users/" + user.getId()))
+                    .entity("User registered successfully!")
+                    .build();
         } catch (IllegalArgumentException e) {
             return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
+        } catch (ServiceUnavailableException e) {
+            return e.getResponse();
         } catch (Exception e) {
             e.printStackTrace();
             return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity("An unexpected error occurred.").build();
@@ -116,7 +154,12 @@ public class UserResource {
 
     @POST
     @Path("/login")
-    public Response login(UserLoginDto loginDto) {
+    public Response login(UserLoginDto loginDto, @Context HttpServerRequest request) {
+        if (loginDto == null || loginDto.getUsername() == null || loginDto.getPassword() == null) {
+            return Response.status(Response.Status.BAD_REQUEST).entity("Username and password are required.").build();
+        }
+        // Throttled attempts are rejected with 429 before any query or BCrypt work
+        loginThrottle.acquire(loginDto.getUsername(), request.remoteAddress().hostAddress());
         try {
             String token = userService.loginUser(loginDto.getUsername(), loginDto.getPassword());
             return Response.ok(token).build();
@@ -131,8 +174,8 @@ public class UserResource {
     public Response addLimCoins(@PathParam("id") Long id, @QueryParam("amount") int amount) {
         String authenticatedUsername = securityContext.getUserPrincipal().getName();
 
-        // Find the user
-        User user = userService.findUserById(id);
+        // Find the user, the ownership check only needs the local entity
+        User user = userService.findUserEntityById(id);
         if (user == null) {
             return Response.status(Response.Status.NOT_FOUND).entity("User not found").build();
         }
@@ -160,8 +203,8 @@ public class UserResource {
     public Response deductLimCoins(@PathParam("id") Long id, @QueryParam("amount") int amount) {
         String authenticatedUsername = securityContext.getUserPrincipal().getName();
 
-        // Find the user
-        User user = userService.findUserById(id);
+        // Find the user, the ownership check only needs the local entity
+        User user = userService.findUserEntityById(id);
         if (user == null) {
             return Response.status(Response.Status.NOT_FOUND).entity("User not found").build();
         }
@@ -179,6 +222,42 @@ public class UserResource {
         return Response.ok("Coins deducted successfully!").build();
     }
 
+    @POST
+    @Path("/coins/batch")
+    @RolesAllowed("Admin") // Settlement is done by the auction service with an Admin token
+    public Response applyCoinBatch(CoinBatchRequest request) {
+        if (request == null || request.getMode() == null || request.getOperations() == null) {
+            return Response.status(Response.Status.BAD_REQUEST).entity("Mode and operations are required.").build();
+        }
+        if (request.getOperations().size() > MAX_COIN_BATCH_SIZE) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity("A batch can hold at most " + MAX_COIN_BATCH_SIZE + " operations.")
+                    .build();
+        }
+        for (CoinOperation operation : request.getOperations()) {
+            if (operation == null || operation.getUserId() == null) {
+                return Response.status(Response.Status.BAD_REQUEST).entity("Every operation needs a userId.").build();
+            }
+            if (!operation.hasValidAmount()) {
+                return Response.status(Response.Status.BAD_REQUEST)
+                        .entity("Every operation needs a non-zero amount above " + Integer.MIN_VALUE + ".")
+                        .build();
+            }
+        }
+
+        try {
+            List<CoinOperationResult> results = userService.applyCoinBatch(request);
+            boolean rolledBack = results.stream()
+                    .anyMatch(result -> result.getStatus() == CoinOperationResult.Status.ROLLED_BACK);
+            // 409 tells the caller nothing from an all-or-nothing batch was applied
+            return Response.status(rolledBack ? Response.Status.CONFLICT : Response.Status.OK).entity(results).build();
+        } catch (Exception e) {
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                    .entity("An unexpected error occurred: " + e.getMessage())
+                    .build();
+        }
+    }
+
     @POST
     @Path("/{userId}/add-pokemon")
     public Response addPokemonToUser(@PathParam("userId") Long userId, Pokemon pokemon) {
@@ -226,9 +305,14 @@ public class UserResource {
     @GET
     @Path("/top-limcoins")
     @RolesAllowed("Admin") // Restrict access to Admins
-    public Response getTopUsersByLimCoins() {
+    public Response getTopUsersByLimCoins(@QueryParam("limit") @DefaultValue("5") int limit) {
+        if (limit < 1 || limit > MAX_LEADERBOARD_PAGE_SIZE) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity("Limit must be between 1 and " + MAX_LEADERBOARD_PAGE_SIZE + ".")
+                    .build();
+        }
         try {
-            List<User> topUsers = userService.getTopUsersByLimCoins();
+            List<User> topUsers = userService.getTopUsersByLimCoins(limit);
             return Response.ok(topUsers).build();
         } catch (Exception e) {
             return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
@@ -237,5 +321,33 @@ public class UserResource {
         }
     }
 
+    @GET
+    @Path("/leaderboard")
+    @RolesAllowed("Admin") // Same audience as top-limcoins
+    public Response getLeaderboard(@QueryParam("offset") @DefaultValue("0") int offset,
+                                   @QueryParam("limit") @DefaultValue("20") int limit) {
+        if (offset < 0 || limit < 1 || limit > MAX_LEADERBOARD_PAGE_SIZE) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity("Offset must be positive and limit between 1 and " + MAX_LEADERBOARD_PAGE_SIZE + ".")
+                    .build();
+        }
+        return Response.ok(userService.getLeaderboardPage(offset, limit)).build();
+    }
 
+    @GET
+    @Path("/{id}/rank")
+    @RolesAllowed({"User", "Admin"}) // Users can see their own rank
+    public Response getLeaderboardRank(@PathParam("id") Long id) {
+        String authenticatedUsername = securityContext.getUserPrincipal().getName();
+
+        // Find the user, the ownership check only needs the local entity
+        User user = userService.findUserEntityById(id);
+
+        // Check if the authenticated user matches the requested user or is an Admin
+        if (!user.getUsername().equals(authenticatedUsername) && !securityContext.isUserInRole("Admin")) {
+            return Response.status(Response.Status.FORBIDDEN).entity("Access denied").build();
+        }
+
+        return Response.ok(userService.getLeaderboardRank(id)).build();
+    }
 }
@@ -1,80 +1,187 @@
 package com.example.user;
 
 import com.example.user.exceptions.UserNotFoundException;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 
+import jakarta.annotation.PostConstruct;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import jakarta.persistence.EntityManager;
-import jakarta.persistence.NoResultException;
 import jakarta.transaction.Transactional;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.smallrye.mutiny.Uni;
+import jakarta.json.bind.Jsonb;
+import jakarta.ws.rs.ServiceUnavailableException;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 
-import org.mindrot.jbcrypt.BCrypt;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
 import com.example.utils.JwtUtils;
 
 
 
 @ApplicationScoped
-
-
+@Timed(value = "user.service", histogram = true)
 public class UserService {
 
     @Inject
     EntityManager em;
 
     @Inject
-    PokemonClient pokemonClient;
+    UserEnrichmentService enrichmentService;
+
+    @Inject
+    LimCoinsService limCoinsService;
+
+    @Inject
+    LoginThrottle loginThrottle;
 
     @Inject
-    EnchereClient enchereClient;
+    LeaderboardService leaderboardService;
 
+    @Inject
+    PasswordHasher passwordHasher;
+
+    @Inject
+    UserUniquenessService uniquenessService;
+
+    @Inject
+    SessionFactory sessionFactory;
+
+    @Inject
+    Jsonb jsonb;
+
+    @Inject
+    MeterRegistry registry;
+
+    @ConfigProperty(name = "user.stream.fetch-size", defaultValue = "500")
+    int streamFetchSize;
+
+    private Timer jwtSignTimer;
+
+    @PostConstruct
+    void initMetrics() {
+        jwtSignTimer = Timer.builder("jwt.sign").publishPercentileHistogram().register(registry);
+    }
 
     public List<User> getAllUsers() {
         return em.createQuery("SELECT u FROM User u", User.class).getResultList();
     }
 
+    // Keyset pagination on the primary key, cost stays the same however deep the page is
+    public UserPage getUsersPage(Long after, int limit) {
+        List<User> users = em.createQuery("SELECT u FROM User u WHERE u.id > :after ORDER BY u.id", User.class)
+                .setParameter("after", after == null ? 0L : after)
+                .setMaxResults(limit + 1) // one extra row tells whether another page exists
+                .getResultList();
+        if (users.size() <= limit) {
+            return new UserPage(users, null);
+        }
+        List<User> page = users.subList(0, limit);
+        return new UserPage(page, page.get(limit - 1).getId());
+    }
+
+    // Writes every user as one JSON line; a stateless session scrolls the table so nothing accumulates
+    public void streamAllUsers(OutputStream output) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        try (StatelessSession session = sessionFactory.openStatelessSession();
+             ScrollableResults<User> users = session.createQuery("SELECT u FROM User u ORDER BY u.id", User.class)
+                     .setFetchSize(streamFetchSize)
+                     .scroll(ScrollMode.FORWARD_ONLY)) {
+            while (users.next()) {
+                writer.write(jsonb.toJson(users.get()));
+                writer.write('\n');
+            }
+        }
+        writer.flush();
+    }
+
     public User findUserById(Long id) {
-        User user = em.find(User.class, id);
+        return enrichUserAsync(findUserEntityById(id)).await().indefinitely();
+    }
+
+    // Local-only lookup for internal operations, never calls the Pokémon/Enchère services
+    public User findUserEntityById(Long id) {
+        User user = ServerTiming.current().time("db", () -> em.find(User.class, id));
         if (user == null) {
             throw new UserNotFoundException("User with ID " + id + " not found.");
         }
+        return user;
+    }
 
-        List<Pokemon> pokemons = pokemonClient.getPokemonsByUserId(id);
-        List<Enchere> encheres = enchereClient.getEncheresByUserId(id);
-        user.setPokemons(pokemons);
-        user.setEncheres(encheres);
+    // Loads the user's Pokémon and Enchère lists from the remote services
+    public User enrichUser(User user) {
+        return enrichmentService.enrich(user);
+    }
 
-        return user;
+    // Reads the balance on the calling thread, then completes once both remote lists are in
+    // without holding any thread while they load
+    public Uni<User> enrichUserAsync(User user) {
+        int balance = ServerTiming.current().time("db", () -> limCoinsService.currentBalance(user));
+        return enrichmentService.enrichAsync(user).invoke(enriched -> enriched.setLimCoins(balance));
     }
 
-    @Transactional
     public void addUser(User user) {
-        em.persist(user);
+        uniquenessService.checkAvailable(user.getUsername(), user.getEmail(), null);
+        // Flushed inside the transaction so a duplicate is reported like at registration
+        try {
+            QuarkusTransaction.requiringNew().run(() -> {
+                em.persist(user);
+                em.flush();
+                limCoinsService.accountCreated(user);
+                loginThrottle.usernameTaken(user.getUsername());
+                uniquenessService.taken(user.getUsername(), user.getEmail());
+            });
+        } catch (RuntimeException e) {
+            throw uniquenessService.translate(e, user.getUsername(), user.getEmail(), null);
+        }
     }
 
-    @Transactional
     public void updateUser(Long id, User updatedUser, String authenticatedRole) {
         if (!"Admin".equals(authenticatedRole)) {
             throw new SecurityException("Only Admins can update users.");
         }
 
-        User existingUser = findUserById(id);
-        if (existingUser == null) {
-            throw new UserNotFoundException("Cannot update: User not found.");
-        }
-
-        if (updatedUser.getUsername() != null) {
-            existingUser.setUsername(updatedUser.getUsername());
-        }
-        if (updatedUser.getEmail() != null) {
-            existingUser.setEmail(updatedUser.getEmail());
-        }
-        if (updatedUser.getRole() != null) {
-            existingUser.setRole(updatedUser.getRole());
+        try {
+            QuarkusTransaction.requiringNew().run(() -> {
+                User existingUser = findUserEntityById(id);
+                if (existingUser == null) {
+                    throw new UserNotFoundException("Cannot update: User not found.");
+                }
+                if (updatedUser.getUsername() != null) {
+                    existingUser.setUsername(updatedUser.getUsername());
+                    loginThrottle.usernameTaken(updatedUser.getUsername());
+                }
+                if (updatedUser.getEmail() != null) {
+                    existingUser.setEmail(updatedUser.getEmail());
+                }
+                if (updatedUser.getRole() != null) {
+                    existingUser.setRole(updatedUser.getRole());
+                }
+                em.merge(existingUser);
+                em.flush();
+                uniquenessService.taken(updatedUser.getUsername(), updatedUser.getEmail());
+            });
+        } catch (UserNotFoundException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            // Renaming onto a taken username or email is reported like at registration
+            throw uniquenessService.translate(e, updatedUser.getUsername(), updatedUser.getEmail(), id);
         }
-
-        em.merge(existingUser);
     }
 
     @Transactional
@@ -83,42 +190,30 @@ public class UserService {
             throw new SecurityException("Only Admins can delete users.");
         }
 
-        User user = findUserById(id);
+        User user = findUserEntityById(id);
         if (user == null) {
             throw new UserNotFoundException("Cannot delete: User not found.");
         }
 
         em.remove(user);
+        limCoinsService.accountDeleted(id);
+        enrichmentService.invalidate(id);
     }
 
 
 
-    @Transactional
     public void registerUser(User user) {
         if (user.getUsername() == null || user.getEmail() == null || user.getPassword() == null) {
             throw new IllegalArgumentException("All fields are required.");
         }
 
         try {
-            // Check if username or email already exists
-            Long usernameCount = em.createQuery(
-                            "SELECT COUNT(u) FROM User u WHERE u.username = :username", Long.class)
-                    .setParameter("username", user.getUsername())
-                    .getSingleResult();
-            if (usernameCount > 0) {
-                throw new IllegalArgumentException("Username already exists.");
-            }
+            // Check if username or email already exists, usually answered by the Bloom filters alone
+            uniquenessService.checkAvailable(user.getUsername(), user.getEmail(), null);
 
-            Long emailCount = em.createQuery(
-                            "SELECT COUNT(u) FROM User u WHERE u.email = :email", Long.class)
-                    .setParameter("email", user.getEmail())
-                    .getSingleResult();
-            if (emailCount > 0) {
-                throw new IllegalArgumentException("Email already exists.");
-            }
-
-            // Hash the password
-            user.setPassword(BCrypt.hashpw(user.getPassword(), BCrypt.gensalt()));
+            // Hash the password on the hasher pool, before any transaction holds a connection;
+            // the unique constraints still catch a registration racing this one
+            user.setPassword(passwordHasher.hash(user.getPassword()));
 
             // Set role to "User" if not provided
             if (user.getRole() == null || user.getRole().isEmpty()) {
@@ -128,8 +223,20 @@ public class UserService {
             // Default LimCoins for new users
             user.setLimCoins(1000);
 
-            // Persist the user
-            em.persist(user);
+            // Persist the user, flushing so a lost race surfaces here as a constraint violation
+            try {
+                QuarkusTransaction.requiringNew().run(() -> {
+                    em.persist(user);
+                    em.flush();
+                    limCoinsService.accountCreated(user);
+                    loginThrottle.usernameTaken(user.getUsername());
+                    uniquenessService.taken(user.getUsername(), user.getEmail());
+                });
+            } catch (RuntimeException e) {
+                throw uniquenessService.translate(e, user.getUsername(), user.getEmail(), null);
+            }
+        } catch (ServiceUnavailableException e) {
+            throw e; // Hasher saturated, let the caller retry
         } catch (Exception e) {
             // Add debugging logs
             e.printStackTrace();
@@ -140,108 +247,92 @@ public class UserService {
 
 
     public String loginUser(String username, String password) {
-        try {
-            // Normalize input username by trimming spaces
-            if (username == null || username.trim().isEmpty()) {
-                throw new IllegalArgumentException("Username cannot be empty.");
-            }
-            if (password == null || password.trim().isEmpty()) {
-                throw new IllegalArgumentException("Password cannot be empty.");
-            }
+        // Normalize input username by trimming spaces
+        if (username == null || username.trim().isEmpty()) {
+            throw new IllegalArgumentException("Username cannot be empty.");
+        }
+        if (password == null || password.trim().isEmpty()) {
+            throw new IllegalArgumentException("Password cannot be empty.");
+        }
 
+        // Usernames that recently failed to resolve skip the lookup entirely
+        if (loginThrottle.isKnownUnknown(username)) {
+            throw new IllegalArgumentException("User not found with the provided username.");
+        }
 
-            // Query the database for the user by username
-            User user = em.createQuery("SELECT u FROM User u WHERE u.username = :username", User.class)
-                    .setParameter("username", username)
-                    .getSingleResult();
+        ServerTiming timing = ServerTiming.current();
 
-            // Validate the password using BCrypt
-            if (!BCrypt.checkpw(password, user.getPassword())) {
-                throw new IllegalArgumentException("Invalid password.");
-            }
+        // Natural-id lookup, served from the second-level cache when the user was seen before
+        User user = timing.time("db", () -> em.unwrap(Session.class).bySimpleNaturalId(User.class).load(username));
+        if (user == null) {
+            loginThrottle.rememberUnknown(username);
+            throw new IllegalArgumentException("User not found with the provided username.");
+        }
 
-            // Generate and return the JWT token
-            return  JwtUtils.generateToken(user.getUsername(), user.getRole());
+        // Validate the password using BCrypt, on the hasher pool
+        if (!timing.time("bcrypt", () -> passwordHasher.verify(password, user.getPassword()))) {
+            throw new IllegalArgumentException("Invalid password.");
+        }
 
-        } catch (NoResultException e) {
-            throw new IllegalArgumentException("User not found with the provided username.");
+        // Upgrade the stored hash transparently when the configured cost has changed
+        if (passwordHasher.needsRehash(user.getPassword())) {
+            String upgraded = timing.time("bcrypt", () -> passwordHasher.hash(password));
+            Long id = user.getId();
+            timing.time("db", () -> QuarkusTransaction.requiringNew().run(() -> em.find(User.class, id).setPassword(upgraded)));
         }
+
+        // Generate and return the JWT token
+        return timing.time("jwt", () -> jwtSignTimer.record(() -> JwtUtils.generateToken(user.getUsername(), user.getRole())));
     }
 
-    @Transactional
     public boolean addLimCoins(Long userId, int amount) {
-        User user = findUserById(userId);
-        if (user == null) {
-            return false; // User not found
-        }
-        user.setLimCoins(user.getLimCoins() + amount);
-        em.merge(user);
-        return true; // Coins added successfully
+        return limCoinsService.credit(userId, amount);
     }
 
-
-    @Transactional
     public boolean deductLimCoins(Long userId, int amount) {
-        User user = findUserById(userId);
-        if (user == null || user.getLimCoins() < amount) {
-            return false; // User not found or insufficient coins
-        }
-        user.setLimCoins(user.getLimCoins() - amount);
-        em.merge(user);
-        return true; // Coins deducted successfully
+        return limCoinsService.debit(userId, amount);
     }
 
-    private void checkForDuplicateUser(User user) {
-        Long usernameCount = em.createQuery(
-                        "SELECT COUNT(u) FROM User u WHERE u.username = :username AND u.id != :id", Long.class)
-                .setParameter("username", user.getUsername())
-                .setParameter("id", user.getId())
-                .getSingleResult();
-
-        if (usernameCount > 0) {
-            throw new IllegalArgumentException("Username already exists.");
-        }
-
-        Long emailCount = em.createQuery(
-                        "SELECT COUNT(u) FROM User u WHERE u.email = :email AND u.id != :id", Long.class)
-                .setParameter("email", user.getEmail())
-                .setParameter("id", user.getId())
-                .getSingleResult();
+    public List<CoinOperationResult> applyCoinBatch(CoinBatchRequest request) {
+        return limCoinsService.applyBatch(request.getOperations(), request.getMode());
+    }
 
-        if (emailCount > 0) {
-            throw new IllegalArgumentException("Email already exists.");
-        }
+    private void checkForDuplicateUser(User user) {
+        uniquenessService.checkAvailable(user.getUsername(), user.getEmail(), user.getId());
     }
 
     @Transactional
     public void addPokemonToUser(Long userId, Pokemon pokemon) {
-        User user = findUserById(userId);
-        pokemonClient.addPokemonToUser(userId, pokemon); // Notify the Pokémon microservice
-        user.getPokemons().add(pokemon);
+        findUserEntityById(userId);
+        enrichmentService.addPokemonToUser(userId, pokemon);
     }
 
     public List<Pokemon> getUserPokemons(Long userId) {
-        return findUserById(userId).getPokemons();
+        findUserEntityById(userId);
+        return enrichmentService.pokemonsOf(userId).await().indefinitely();
     }
 
     @Transactional
     public void placeBid(Long userId, Enchere enchere) {
-        User user = findUserById(userId);
-        enchereClient.placeBid(userId, enchere); // Notify the Enchère microservice
-        user.getEncheres().add(enchere);
+        findUserEntityById(userId);
+        enrichmentService.placeBid(userId, enchere);
     }
 
     public List<Enchere> getUserEncheres(Long userId) {
-        return findUserById(userId).getEncheres();
+        findUserEntityById(userId);
+        return enrichmentService.encheresOf(userId).await().indefinitely();
     }
 
-    @Transactional
+    // No transaction of its own: the credit is the only write and runs in its own, which the
+    // write-behind engine requires
     public String sellPokemonToSystem(Long userId, Long pokemonId) {
-        // Find the user
-        User user = findUserById(userId);
+        // Find the user, only the Pokémon list is needed here
+        User user = findUserEntityById(userId);
         if (user == null) {
             throw new UserNotFoundException("User not found.");
         }
+        // Fresh from the Pokémon service: a cached list may still hold a Pokémon sold moments ago
+        user.setPokemons(new ArrayList<>(enrichmentService.freshPokemonsOf(userId).await().indefinitely()));
 
         // Check if the user owns the Pokémon
         Pokemon pokemonToSell = user.getPokemons().stream()
@@ -255,22 +346,44 @@ public class UserService {
 
         int pokemonRealValue = pokemonToSell.getValeurReelle();
 
-        user.setLimCoins(user.getLimCoins() + pokemonRealValue);
+        limCoinsService.credit(userId, pokemonRealValue);
 
         user.getPokemons().remove(pokemonToSell);
-
-        em.merge(user);
+        enrichmentService.invalidatePokemons(userId);
 
         return "Pokémon sold successfully! Real value: " + pokemonRealValue + " LimCoins.";
     }
 
-    public List<User> getTopUsersByLimCoins() {
-        return em.createQuery("SELECT u FROM User u ORDER BY u.limCoins DESC", User.class)
-                .setMaxResults(5) // Limit the results to 5
-                .getResultList();
+    // Ranked from the in-memory leaderboard, the entities themselves come from the second-level cache.
+    // Returned as copies carrying the ranked balance: setting it on the managed entity would be
+    // flushed as a write by any transaction the caller runs this in
+    public List<User> getTopUsersByLimCoins(int limit) {
+        List<User> topUsers = new ArrayList<>();
+        for (LeaderboardEntry entry : leaderboardService.page(0, limit)) {
+            User user = em.find(User.class, entry.getUserId());
+            if (user != null) {
+                User ranked = new User();
+                ranked.setId(user.getId());
+                ranked.setUsername(user.getUsername());
+                ranked.setEmail(user.getEmail());
+                ranked.setPassword(user.getPassword());
+                ranked.setRole(user.getRole());
+                ranked.setLimCoins((int) entry.getLimCoins());
+                topUsers.add(ranked);
+            }
+        }
+        return topUsers;
     }
 
+    public List<LeaderboardEntry> getLeaderboardPage(int offset, int limit) {
+        return leaderboardService.page(offset, limit);
+    }
 
-
-
-}
\ No newline at end of file
+    public LeaderboardEntry getLeaderboardRank(Long userId) {
+        LeaderboardEntry entry = leaderboardService.rankOf(userId);
+        if (entry == null) {
+            throw new UserNotFoundException("User with ID " + userId + " not found.");
+        }
+        return entry;
+    }
+}
@@ -0,0 +1,169 @@
+package com.example.user;
+
+import com.example.utils.BloomFilter;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.exception.ConstraintViolationException;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bloom filters over every username and email, built at startup and fed on insert and rename.
+ * A definite miss on both skips the duplicate queries entirely; the unique constraints stay the
+ * final guarantee, including for rows inserted by other instances. A possible hit costs one
+ * combined query instead of two.
+ */
+@ApplicationScoped
+public class UserUniquenessService {
+
+    @Inject
+    EntityManager em;
+
+    @Inject
+    SessionFactory sessionFactory;
+
+    @ConfigProperty(name = "user.uniqueness-filter.enabled", defaultValue = "true")
+    boolean enabled;
+
+    @ConfigProperty(name = "user.uniqueness-filter.expected-users", defaultValue = "1000000")
+    long expectedUsers;
+
+    @ConfigProperty(name = "user.uniqueness-filter.false-positive-rate", defaultValue = "0.01")
+    double falsePositiveRate;
+
+    @ConfigProperty(name = "user.stream.fetch-size", defaultValue = "500")
+    int fetchSize;
+
+    private volatile BloomFilter usernames;
+    private volatile BloomFilter emails;
+
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong queried = new AtomicLong();
+    private final AtomicLong constraintViolations = new AtomicLong();
+
+    void onStart(@Observes StartupEvent event) {
+        if (!enabled) {
+            return;
+        }
+        BloomFilter loadedUsernames = new BloomFilter(expectedUsers, falsePositiveRate);
+        BloomFilter loadedEmails = new BloomFilter(expectedUsers, falsePositiveRate);
+        try (StatelessSession session = sessionFactory.openStatelessSession();
+             ScrollableResults<Object[]> rows = session.createQuery(
+                             "SELECT u.username, u.email FROM User u", Object[].class)
+                     .setFetchSize(fetchSize)
+                     .scroll(ScrollMode.FORWARD_ONLY)) {
+            while (rows.next()) {
+                Object[] row = rows.get();
+                loadedUsernames.add((String) row[0]);
+                loadedEmails.add((String) row[1]);
+            }
+        }
+        // Until both are published every check goes to the database
+        usernames = loadedUsernames;
+        emails = loadedEmails;
+    }
+
+    // Throws when the username or email belongs to another user, excludeId may be null
+    public void checkAvailable(String username, String email, Long excludeId) {
+        BloomFilter knownUsernames = usernames;
+        BloomFilter knownEmails = emails;
+        if (knownUsernames != null && knownEmails != null
+                && !knownUsernames.mightContain(username) && !knownEmails.mightContain(email)) {
+            skipped.incrementAndGet();
+            return;
+        }
+        queried.incrementAndGet();
+        findConflict(username, email, excludeId);
+    }
+
+    // False only when the username is certainly not taken
+    public boolean mightContainUsername(String username) {
+        BloomFilter knownUsernames = usernames;
+        return knownUsernames == null || knownUsernames.mightContain(username);
+    }
+
+    public boolean mightContainEmail(String email) {
+        BloomFilter knownEmails = emails;
+        return knownEmails == null || knownEmails.mightContain(email);
+    }
+
+    // Called whenever a username or email starts to exist, a null value is left alone
+    public void taken(String username, String email) {
+        if (username != null && usernames != null) {
+            usernames.add(username);
+        }
+        if (email != null && emails != null) {
+            emails.add(email);
+        }
+    }
+
+    // Turns a unique constraint failure into the same error the pre-check would have raised
+    public RuntimeException translate(RuntimeException e, String username, String email, Long excludeId) {
+        if (!isConstraintViolation(e)) {
+            return e;
+        }
+        constraintViolations.incrementAndGet();
+        // Another instance got there first, remember it so the next attempt is caught up front
+        taken(username, email);
+        try {
+            findConflict(username, email, excludeId);
+        } catch (IllegalArgumentException conflict) {
+            return conflict;
+        }
+        return e;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("ready", usernames != null && emails != null);
+        stats.put("queriesSkipped", skipped.get());
+        stats.put("queriesRun", queried.get());
+        stats.put("constraintViolations", constraintViolations.get());
+        if (usernames != null && emails != null) {
+            stats.put("usernameFillRatio", usernames.fillRatio());
+            stats.put("emailFillRatio", emails.fillRatio());
+        }
+        return stats;
+    }
+
+    private void findConflict(String username, String email, Long excludeId) {
+        String jpql = "SELECT u.username, u.email FROM User u WHERE (u.username = :username OR u.email = :email)";
+        TypedQuery<Object[]> query = em.createQuery(excludeId == null ? jpql : jpql + " AND u.id <> :id", Object[].class)
+                .setParameter("username", username)
+                .setParameter("email", email)
+                .setMaxResults(2);
+        if (excludeId != null) {
+            query.setParameter("id", excludeId);
+        }
+        List<Object[]> matches = query.getResultList();
+        for (Object[] match : matches) {
+            if (match[0].equals(username)) {
+                throw new IllegalArgumentException("Username already exists.");
+            }
+        }
+        if (!matches.isEmpty()) {
+            throw new IllegalArgumentException("Email already exists.");
+        }
+    }
+
+    private static boolean isConstraintViolation(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
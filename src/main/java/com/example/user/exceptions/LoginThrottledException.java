@@ -0,0 +1,14 @@
+package com.example.user.exceptions;
+
+import jakarta.ws.rs.WebApplicationException;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.Response;
+
+public class LoginThrottledException extends WebApplicationException {
+    public LoginThrottledException(long retryAfterSeconds) {
+        super(Response.status(Response.Status.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, retryAfterSeconds)
+                .entity("Too many login attempts, retry later.")
+                .build());
+    }
+}
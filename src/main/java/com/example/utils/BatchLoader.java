@@ -0,0 +1,119 @@
+package com.example.utils;
+
+import io.smallrye.mutiny.Uni;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Collects per-key lookups for a short window, or until a batch is full, and resolves all of
+ * them with one bulk call. Callers asking for the same key in the same window share the result.
+ * A failed bulk call fails every caller of that batch, and a key left out of the response fails
+ * its own callers: an absent entry says nothing about the value, so it is not made up here.
+ */
+public class BatchLoader<V> {
+
+    private final Duration window;
+    private final int maxBatchSize;
+    private final Function<Set<Long>, Uni<Map<Long, V>>> bulkFetch;
+    private final ScheduledExecutorService scheduler;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private Map<Long, CompletableFuture<V>> pending = new HashMap<>();
+    private ScheduledFuture<?> scheduled;
+
+    private final AtomicLong requestedKeys = new AtomicLong();
+    private final AtomicLong dispatchedBatches = new AtomicLong();
+
+    public BatchLoader(Duration window, int maxBatchSize, Function<Set<Long>, Uni<Map<Long, V>>> bulkFetch,
+                       ScheduledExecutorService scheduler) {
+        this.window = window;
+        this.maxBatchSize = maxBatchSize;
+        this.bulkFetch = bulkFetch;
+        this.scheduler = scheduler;
+    }
+
+    public Uni<V> load(Long key) {
+        requestedKeys.incrementAndGet();
+        CompletableFuture<V> result;
+        Map<Long, CompletableFuture<V>> full = null;
+        lock.lock();
+        try {
+            result = pending.computeIfAbsent(key, k -> new CompletableFuture<>());
+            if (pending.size() >= maxBatchSize) {
+                full = takePending();
+            } else if (scheduled == null) {
+                scheduled = scheduler.schedule(this::dispatchPending, window.toNanos(), TimeUnit.NANOSECONDS);
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (full != null) {
+            dispatch(full);
+        }
+        // A copy per caller: a caller cancelling its Uni must not cancel the key for the others
+        return Uni.createFrom().completionStage(result.copy());
+    }
+
+    public long requestedKeys() {
+        return requestedKeys.get();
+    }
+
+    public long dispatchedBatches() {
+        return dispatchedBatches.get();
+    }
+
+    private void dispatchPending() {
+        Map<Long, CompletableFuture<V>> batch;
+        lock.lock();
+        try {
+            batch = takePending();
+        } finally {
+            lock.unlock();
+        }
+        if (!batch.isEmpty()) {
+            dispatch(batch);
+        }
+    }
+
+    // Must hold the lock
+    private Map<Long, CompletableFuture<V>> takePending() {
+        Map<Long, CompletableFuture<V>> batch = pending;
+        pending = new HashMap<>();
+        if (scheduled != null) {
+            scheduled.cancel(false);
+            scheduled = null;
+        }
+        return batch;
+    }
+
+    private void dispatch(Map<Long, CompletableFuture<V>> batch) {
+        dispatchedBatches.incrementAndGet();
+        Uni<Map<Long, V>> call;
+        try {
+            call = bulkFetch.apply(batch.keySet());
+        } catch (RuntimeException e) {
+            call = Uni.createFrom().failure(e);
+        }
+        call.subscribe().with(
+                values -> batch.forEach((key, future) -> {
+                    V value = values == null ? null : values.get(key);
+                    if (value != null) {
+                        future.complete(value);
+                    } else {
+                        future.completeExceptionally(new NoSuchElementException("No entry for " + key + " in the bulk response"));
+                    }
+                }),
+                failure -> batch.values().forEach(future -> future.completeExceptionally(failure)));
+    }
+}
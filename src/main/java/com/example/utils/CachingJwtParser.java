@@ -0,0 +1,118 @@
+package com.example.utils;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.smallrye.jwt.auth.principal.DefaultJWTParser;
+import io.smallrye.jwt.auth.principal.JWTAuthContextInfo;
+import io.smallrye.jwt.auth.principal.ParseException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Priority;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.inject.Alternative;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.jwt.JsonWebToken;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Replaces the SmallRye JWT parser used by the bearer token mechanism so a token whose RS256
+ * signature was already checked is not verified again. Entries are keyed by the SHA-256 of the
+ * raw token and expire at the token's own exp claim.
+ */
+@Alternative
+@Priority(1)
+@ApplicationScoped
+public class CachingJwtParser extends DefaultJWTParser {
+
+    @ConfigProperty(name = "user.jwt.verified-cache.enabled", defaultValue = "true")
+    boolean enabled;
+
+    @ConfigProperty(name = "user.jwt.verified-cache.max-size", defaultValue = "50000")
+    long maxSize;
+
+    private Cache<String, JsonWebToken> verified;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public CachingJwtParser() {
+    }
+
+    // Outside CDI, e.g. from the benchmarks
+    public CachingJwtParser(JWTAuthContextInfo authContextInfo, long maxSize) {
+        super(authContextInfo);
+        this.enabled = true;
+        this.maxSize = maxSize;
+        init();
+    }
+
+    @PostConstruct
+    void init() {
+        verified = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new Expiry<String, JsonWebToken>() {
+                    @Override
+                    public long expireAfterCreate(String key, JsonWebToken token, long currentTime) {
+                        long remainingSeconds = token.getExpirationTime() - System.currentTimeMillis() / 1000;
+                        return TimeUnit.SECONDS.toNanos(Math.max(0, remainingSeconds));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, JsonWebToken token, long currentTime,
+                                                  long currentDuration) {
+                        return currentDuration;
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, JsonWebToken token, long currentTime,
+                                                long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+    }
+
+    @Override
+    public JsonWebToken parse(String bearerToken) throws ParseException {
+        if (!enabled) {
+            return super.parse(bearerToken);
+        }
+        String key = digest(bearerToken);
+        JsonWebToken token = verified.getIfPresent(key);
+        if (token != null) {
+            hits.incrementAndGet();
+            return token;
+        }
+        misses.incrementAndGet();
+        // Invalid tokens throw here and are never cached, so they are checked again every time
+        token = super.parse(bearerToken);
+        verified.put(key, token);
+        return token;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("hits", hits.get());
+        stats.put("misses", misses.get());
+        stats.put("size", verified.estimatedSize());
+        return stats;
+    }
+
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.utils;
+
+import io.quarkus.logging.Log;
+import io.quarkus.runtime.ImageMode;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Listens to the JFR jdk.VirtualThreadPinned event in-process and counts pinning per call site.
+ * A virtual thread blocking inside synchronized code or a native frame holds its carrier, so
+ * a steady stream of these events means the endpoints are not getting the concurrency they
+ * should from virtual threads.
+ */
+@ApplicationScoped
+public class PinningMonitor {
+
+    private static final int MAX_TRACKED_SITES = 100;
+
+    @ConfigProperty(name = "user.virtual-threads.pinning-monitor.enabled", defaultValue = "true")
+    boolean enabled;
+
+    @ConfigProperty(name = "user.virtual-threads.pinning-monitor.threshold", defaultValue = "20ms")
+    Duration threshold;
+
+    private final AtomicLong pinnedEvents = new AtomicLong();
+    private final AtomicLong pinnedNanos = new AtomicLong();
+    private final Map<String, LongAdder> bySite = new ConcurrentHashMap<>();
+
+    private RecordingStream stream;
+
+    void onStart(@Observes StartupEvent event) {
+        if (!enabled) {
+            return;
+        }
+        // Native images are built without JFR event streaming
+        if (ImageMode.current().isNativeImage()) {
+            Log.warn("Virtual thread pinning monitor is not available in native mode");
+            return;
+        }
+        stream = new RecordingStream();
+        stream.enable("jdk.VirtualThreadPinned").withThreshold(threshold).withStackTrace();
+        stream.onEvent("jdk.VirtualThreadPinned", this::record);
+        stream.startAsync();
+    }
+
+    void onStop(@Observes ShutdownEvent event) {
+        if (stream != null) {
+            stream.close();
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", stream != null);
+        stats.put("pinnedEvents", pinnedEvents.get());
+        stats.put("pinnedMillis", Duration.ofNanos(pinnedNanos.get()).toMillis());
+        Map<String, Long> sites = new LinkedHashMap<>();
+        bySite.entrySet().stream()
+                .sorted((a, b) -> Long.compare(b.getValue().sum(), a.getValue().sum()))
+                .forEach(entry -> sites.put(entry.getKey(), entry.getValue().sum()));
+        stats.put("sites", sites);
+        return stats;
+    }
+
+    private void record(RecordedEvent event) {
+        pinnedEvents.incrementAndGet();
+        pinnedNanos.addAndGet(event.getDuration().toNanos());
+        String site = callSite(event.getStackTrace());
+        LongAdder count = bySite.get(site);
+        if (count == null && bySite.size() < MAX_TRACKED_SITES) {
+            count = bySite.computeIfAbsent(site, key -> new LongAdder());
+            // Only the first occurrence of a site is logged, the counters carry the rest
+            Log.warnf("Virtual thread pinned for %d ms at %s", event.getDuration().toMillis(), site);
+        }
+        if (count != null) {
+            count.increment();
+        }
+    }
+
+    // First frame outside the JDK, which is usually the code that took the monitor
+    private static String callSite(RecordedStackTrace stackTrace) {
+        if (stackTrace == null) {
+            return "unknown";
+        }
+        for (RecordedFrame frame : stackTrace.getFrames()) {
+            String type = frame.getMethod().getType().getName();
+            if (!type.startsWith("java.") && !type.startsWith("jdk.") && !type.startsWith("sun.")) {
+                return type + "." + frame.getMethod().getName() + ":" + frame.getLineNumber();
+            }
+        }
+        return "jdk";
+    }
+}
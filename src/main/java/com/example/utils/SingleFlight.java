@@ -0,0 +1,81 @@
+package com.example.utils;
+
+import io.smallrye.mutiny.Uni;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Runs at most one load per key at a time: callers arriving while a load for their key is in
+ * flight wait for that load instead of starting their own. The key is released as soon as the
+ * load completes, so nothing is cached here.
+ */
+public class SingleFlight<K, V> {
+
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong executions = new AtomicLong();
+
+    public Uni<V> run(K key, Supplier<Uni<V>> load) {
+        return Uni.createFrom().deferred(() -> {
+            calls.incrementAndGet();
+            CompletableFuture<V> created = new CompletableFuture<>();
+            CompletableFuture<V> existing = inFlight.putIfAbsent(key, created);
+            if (existing != null) {
+                return join(existing);
+            }
+            executions.incrementAndGet();
+            // Subscribed on its own so a caller that goes away does not cancel the others
+            Uni<V> started;
+            try {
+                started = load.get();
+            } catch (RuntimeException e) {
+                started = Uni.createFrom().failure(e);
+            }
+            started.subscribe().with(
+                    value -> {
+                        inFlight.remove(key, created);
+                        created.complete(value);
+                    },
+                    failure -> {
+                        inFlight.remove(key, created);
+                        created.completeExceptionally(failure);
+                    });
+            return join(created);
+        });
+    }
+
+    // Mutiny cancels the future behind a cancelled Uni, so every caller gets a copy of the shared
+    // one: cancelling the copy leaves the load and the other callers alone
+    private static <V> Uni<V> join(CompletableFuture<V> shared) {
+        return Uni.createFrom().completionStage(shared.copy());
+    }
+
+    // Called after a write to the key: callers already waiting keep the load they joined, later
+    // callers start a fresh one instead of being handed a result read before the write
+    public void forget(K key) {
+        inFlight.remove(key);
+    }
+
+    public long calls() {
+        return calls.get();
+    }
+
+    public long executions() {
+        return executions.get();
+    }
+
+    // Share of calls that joined a load already in flight
+    public double coalescingRatio() {
+        long total = calls.get();
+        return total == 0 ? 0 : 1 - (double) executions.get() / total;
+    }
+
+    public int inFlight() {
+        return inFlight.size();
+    }
+}
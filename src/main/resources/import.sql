@@ -1,3 +1,5 @@
 INSERT INTO users (id, username, email, limCoins) VALUES
                                                       (1, 'john_doe', 'john@example.com', 100),
                                                       (2, 'jane_doe', 'jane@example.com', 200);
+-- The rows above take explicit ids, start users_seq a whole allocation block past them
+ALTER SEQUENCE users_seq RESTART WITH 101;
@@ -1,8 +1,10 @@
 package com.example;
 
+import io.quarkus.test.common.QuarkusTestResource;
 import io.quarkus.test.junit.QuarkusIntegrationTest;
 
 @QuarkusIntegrationTest
+@QuarkusTestResource(H2ServerResource.class)
 class ExampleResourceIT extends ExampleResourceTest {
     // Execute the same tests but in packaged mode.
 }
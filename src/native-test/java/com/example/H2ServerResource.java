@@ -0,0 +1,34 @@
+package com.example;
+
+import io.quarkus.test.common.QuarkusTestResourceLifecycleManager;
+import org.h2.tools.Server;
+
+import java.sql.SQLException;
+import java.util.Map;
+
+/**
+ * Native images can't embed H2, so packaged and native integration tests get an in-memory
+ * database served over TCP from the test JVM instead of the test profile's jdbc:h2:mem URL.
+ */
+public class H2ServerResource implements QuarkusTestResourceLifecycleManager {
+
+    private Server server;
+
+    @Override
+    public Map<String, String> start() {
+        try {
+            server = Server.createTcpServer("-tcpPort", "0", "-ifNotExists").start();
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not start the H2 TCP server", e);
+        }
+        return Map.of("quarkus.datasource.jdbc.url",
+                "jdbc:h2:tcp://localhost:" + server.getPort() + "/mem:userdb;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000");
+    }
+
+    @Override
+    public void stop() {
+        if (server != null) {
+            server.stop();
+        }
+    }
+}
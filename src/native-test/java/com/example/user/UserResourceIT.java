@@ -0,0 +1,171 @@
+package com.example.user;
+
+import com.example.utils.JwtUtils;
+import io.quarkus.test.common.QuarkusTestResource;
+import io.quarkus.test.common.ResourceArg;
+import io.quarkus.test.junit.QuarkusIntegrationTest;
+import io.restassured.http.ContentType;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.Matchers.hasSize;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Runs against the packaged application, and against the native executable with
+ * {@code ./gradlew testNative}: JSON-B and Jackson models, the rest clients (backed by the
+ * in-process stubs), BCrypt, JWT signing and verification with the bundled PEM keys, and the
+ * metrics endpoint all go through the same paths as in production.
+ */
+@QuarkusIntegrationTest
+@QuarkusTestResource(value = StubDownstreamServices.class, restrictToAnnotatedClass = true, initArgs = {
+        @ResourceArg(name = "latency-median-ms", value = "2"),
+        @ResourceArg(name = "latency-p99-ms", value = "5"),
+        @ResourceArg(name = "error-rate", value = "0"),
+        @ResourceArg(name = "items", value = "3")})
+class UserResourceIT {
+
+    private static final String PASSWORD = "native-test-password";
+
+    private static String adminToken;
+
+    private String username;
+    private Long id;
+    private String token;
+
+    @BeforeAll
+    static void signAdminToken() {
+        // The test JVM signs with the same key the application verifies with
+        System.setProperty("smallrye.jwt.sign.key.location", "META-INF/resources/privateKey.pem");
+        System.setProperty("smallrye.jwt.algorithm", "RS256");
+        adminToken = JwtUtils.generateToken("native-test-admin", "Admin");
+    }
+
+    @BeforeEach
+    void registerAndLogin() {
+        username = "native-" + UUID.randomUUID();
+        given()
+                .contentType(ContentType.JSON)
+                .body("{\"username\":\"" + username + "\",\"email\":\"" + username + "@example.com\","
+                        + "\"password\":\"" + PASSWORD + "\"}")
+                .when().post("/users/register")
+                .then()
+                .statusCode(201);
+
+        token = given()
+                .contentType(ContentType.JSON)
+                .body("{\"username\":\"" + username + "\",\"password\":\"" + PASSWORD + "\"}")
+                .when().post("/users/login")
+                .then()
+                .statusCode(200)
+                .extract().asString();
+
+        id = given()
+                .auth().oauth2(adminToken)
+                .when().get("/users")
+                .then()
+                .statusCode(200)
+                .extract().jsonPath().getLong("find { it.username == '" + username + "' }.id");
+    }
+
+    @Test
+    void profileIsEnrichedFromTheDownstreamServices() {
+        given()
+                .auth().oauth2(token)
+                .when().get("/users/" + id)
+                .then()
+                .statusCode(200)
+                .body("username", equalTo(username))
+                .body("pokemons", hasSize(3))
+                .body("pokemons[0].stats.hp", is(50))
+                .body("encheres", hasSize(3))
+                .body("encheres[0].dateExpiration", containsString("2030-01-01"))
+                .body("enrichmentStale", nullValue());
+    }
+
+    @Test
+    void wrongPasswordIsRejected() {
+        given()
+                .contentType(ContentType.JSON)
+                .body("{\"username\":\"" + username + "\",\"password\":\"not-the-password\"}")
+                .when().post("/users/login")
+                .then()
+                .statusCode(401);
+    }
+
+    @Test
+    void otherUsersProfilesAreForbidden() {
+        given()
+                .auth().oauth2(JwtUtils.generateToken("someone-else", "User"))
+                .when().get("/users/" + id)
+                .then()
+                .statusCode(403);
+    }
+
+    @Test
+    void coinsAreCreditedAndDebited() {
+        int before = given().auth().oauth2(token).when().get("/users/" + id)
+                .then().statusCode(200).extract().path("limCoins");
+
+        given().auth().oauth2(token).when().post("/users/" + id + "/add-coins?amount=10")
+                .then().statusCode(200);
+        given().auth().oauth2(token).when().post("/users/" + id + "/deduct-coins?amount=4")
+                .then().statusCode(200);
+
+        int after = given().auth().oauth2(token).when().get("/users/" + id)
+                .then().statusCode(200).extract().path("limCoins");
+        assertEquals(before + 6, after);
+    }
+
+    @Test
+    void pokemonAndBidPayloadsRoundTrip() {
+        given()
+                .when().get("/users/" + id + "/pokemons")
+                .then()
+                .statusCode(200)
+                .body("[0].types[0]", equalTo("fire"));
+
+        given()
+                .contentType(ContentType.JSON)
+                .body("{\"nom\":\"Pikachu\",\"description\":\"Electric\",\"valeurReelle\":120,"
+                        + "\"types\":[\"electric\"],\"stats\":{\"hp\":35},\"historique_encheres\":{\"1\":100}}")
+                .when().post("/users/" + id + "/add-pokemon")
+                .then()
+                .statusCode(200);
+
+        given()
+                .contentType(ContentType.JSON)
+                .body("{\"pokemonId\":1,\"startingPrice\":100.0,\"highestBid\":150.0,"
+                        + "\"dateExpiration\":\"2030-01-01T12:00:00\",\"status\":\"actif\"}")
+                .when().post("/users/" + id + "/place-bid")
+                .then()
+                .statusCode(200);
+    }
+
+    @Test
+    void serverTimingAndMetricsAreExposed() {
+        given()
+                .auth().oauth2(token)
+                .header("X-Server-Timing", "1")
+                .when().get("/users/" + id)
+                .then()
+                .statusCode(200)
+                .header("Server-Timing", containsString("pokemon;dur="));
+
+        given()
+                .when().get("/q/metrics")
+                .then()
+                .statusCode(200)
+                .body(containsString("user_service_seconds"))
+                .body(containsString("password_bcrypt_seconds"))
+                .body(containsString("downstream_calls_seconds"));
+    }
+}
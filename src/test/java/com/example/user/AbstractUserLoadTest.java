@@ -0,0 +1,306 @@
+package com.example.user;
+
+import com.example.utils.JwtUtils;
+import io.quarkus.test.common.http.TestHTTPResource;
+import jakarta.inject.Inject;
+import jakarta.json.bind.Jsonb;
+import jakarta.json.bind.JsonbBuilder;
+import jakarta.json.bind.JsonbConfig;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URL;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Mixed-traffic load test against in-process stubs of the Pokémon and Enchère services and the
+ * in-memory test database. {@link UserLoadTest} runs it against the non-blocking profile endpoint,
+ * {@link BlockingUserLoadTest} against the classic blocking one; once both ran, a comparison
+ * report is written next to theirs. Excluded from the regular test run; start it with
+ * {@code ./gradlew loadTest} and tune it with system properties:
+ * <ul>
+ *     <li>loadtest.users (default 200), loadtest.concurrency (default 32)</li>
+ *     <li>loadtest.rate, requests per second: when set, requests go out on that fixed schedule
+ *     (open loop) instead of from concurrency workers that each wait for their last response
+ *     (closed loop). Closed-loop latencies hide stalls, since a stalled worker stops sending</li>
+ *     <li>loadtest.warmup-seconds (default 5), loadtest.duration-seconds (default 30)</li>
+ *     <li>loadtest.mix (default login:10,get-user:50,add-coins:10,deduct-coins:10,top-limcoins:20)</li>
+ *     <li>loadtest.max-error-rate (default 0.01), loadtest.report-dir (default build/reports/loadtest)</li>
+ * </ul>
+ * plus the stub settings documented on {@link StubDownstreamServices}.
+ */
+abstract class AbstractUserLoadTest {
+
+    private static final String PASSWORD = "load-test-password";
+
+    // Summaries per stack, shared by the subclasses running in the same test JVM
+    private static final Map<String, Map<String, Map<String, Object>>> SUMMARIES = new ConcurrentHashMap<>();
+
+    @TestHTTPResource("/")
+    URL baseUrl;
+
+    @Inject
+    UserService userService;
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+
+    private final List<TestUser> users = new ArrayList<>();
+    private String adminToken;
+
+    // Name of the stack under test, used in the report file names
+    abstract String stack();
+
+    @Test
+    void mixedTraffic() throws Exception {
+        int userCount = Integer.getInteger("loadtest.users", 200);
+        int concurrency = Integer.getInteger("loadtest.concurrency", 32);
+        Duration warmup = Duration.ofSeconds(Long.getLong("loadtest.warmup-seconds", 5));
+        Duration duration = Duration.ofSeconds(Long.getLong("loadtest.duration-seconds", 30));
+        Map<String, Integer> mix = parseMix(System.getProperty("loadtest.mix",
+                "login:10,get-user:50,add-coins:10,deduct-coins:10,top-limcoins:20"));
+        double maxErrorRate = Double.parseDouble(System.getProperty("loadtest.max-error-rate", "0.01"));
+        double rate = Double.parseDouble(System.getProperty("loadtest.rate", "0"));
+
+        createUsers(userCount, concurrency);
+        adminToken = JwtUtils.generateToken("load-test-admin", "Admin");
+
+        // Warm-up samples go to a recorder that is thrown away
+        drive(mix, concurrency, rate, warmup, new LatencyRecorder());
+        LatencyRecorder recorder = new LatencyRecorder();
+        Duration measured = drive(mix, concurrency, rate, duration, recorder);
+
+        Map<String, Map<String, Object>> summary = recorder.summarize(measured.toMillis() / 1000.0);
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("stack", stack());
+        report.put("startedAt", Instant.now().minus(measured).toString());
+        report.put("users", userCount);
+        if (rate > 0) {
+            report.put("mode", "open-loop");
+            report.put("targetRatePerSecond", rate);
+        } else {
+            report.put("mode", "closed-loop");
+            report.put("concurrency", concurrency);
+        }
+        report.put("durationSeconds", measured.toMillis() / 1000.0);
+        report.put("mix", mix);
+        report.put("stub", Map.of(
+                "latencyMedianMillis", Long.getLong("loadtest.stub.latency-median-ms", 20),
+                "latencyP99Millis", Long.getLong("loadtest.stub.latency-p99-ms", 150),
+                "errorRate", System.getProperty("loadtest.stub.error-rate", "0.005")));
+        report.put("operations", summary);
+        writeReport("loadtest-" + stack(), report);
+
+        SUMMARIES.put(stack(), summary);
+        if (SUMMARIES.size() > 1) {
+            writeReport("comparison", compare());
+        }
+
+        assertTrue(recorder.total() > 0, "No request completed");
+        // Throttled logins would be fast 429s standing in for BCrypt, the figures would be meaningless
+        assertEquals(0, recorder.throttled(), "Login throttle answered during the run, it must be off for load tests");
+        double errorRate = (double) recorder.errors() / recorder.total();
+        assertTrue(errorRate <= maxErrorRate, "Error rate " + errorRate + " above " + maxErrorRate);
+    }
+
+    private void createUsers(int count, int concurrency) throws Exception {
+        String prefix = "load" + System.nanoTime() + "-";
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(concurrency, 8));
+        try {
+            List<Future<TestUser>> created = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                String username = prefix + i;
+                created.add(executor.submit(() -> {
+                    User user = new User();
+                    user.setUsername(username);
+                    user.setEmail(username + "@example.com");
+                    user.setPassword(PASSWORD);
+                    userService.registerUser(user);
+                    return new TestUser(user.getId(), username, JwtUtils.generateToken(username, "User"));
+                }));
+            }
+            for (Future<TestUser> user : created) {
+                users.add(user.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private Duration drive(Map<String, Integer> mix, int concurrency, double rate, Duration duration,
+                           LatencyRecorder recorder) throws Exception {
+        return rate > 0
+                ? driveOpenLoop(mix, rate, duration, recorder)
+                : driveClosedLoop(mix, concurrency, duration, recorder);
+    }
+
+    // Each request is due at a fixed point of the schedule and timed from then, not from when it
+    // was actually sent: time the server spends stalled counts against every request due meanwhile
+    private Duration driveOpenLoop(Map<String, Integer> mix, double rate, Duration duration, LatencyRecorder recorder) {
+        int totalWeight = mix.values().stream().mapToInt(Integer::intValue).sum();
+        long interval = (long) (1_000_000_000L / rate);
+        long start = System.nanoTime();
+        long deadline = start + duration.toNanos();
+        // One virtual thread per request, so a slow response never holds back the next one
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (long due = start; due < deadline; due += interval) {
+                long wait;
+                while ((wait = due - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                long scheduled = due;
+                String operation = pick(mix, totalWeight);
+                TestUser user = users.get(ThreadLocalRandom.current().nextInt(users.size()));
+                executor.submit(() -> {
+                    int status = send(operation, user);
+                    recorder.record(operation, System.nanoTime() - scheduled, status);
+                });
+            }
+        }
+        return Duration.ofNanos(System.nanoTime() - start);
+    }
+
+    private Duration driveClosedLoop(Map<String, Integer> mix, int concurrency, Duration duration,
+                                     LatencyRecorder recorder) throws Exception {
+        int totalWeight = mix.values().stream().mapToInt(Integer::intValue).sum();
+        long start = System.nanoTime();
+        long deadline = start + duration.toNanos();
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int i = 0; i < concurrency; i++) {
+                workers.add(executor.submit(() -> {
+                    while (System.nanoTime() < deadline) {
+                        String operation = pick(mix, totalWeight);
+                        TestUser user = users.get(ThreadLocalRandom.current().nextInt(users.size()));
+                        long sent = System.nanoTime();
+                        int status = send(operation, user);
+                        recorder.record(operation, System.nanoTime() - sent, status);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        return Duration.ofNanos(System.nanoTime() - start);
+    }
+
+    // Status code of the response, or -1 when the request itself failed
+    private int send(String operation, TestUser user) {
+        HttpRequest request = switch (operation) {
+            case "login" -> post("users/login", null,
+                    "{\"username\":\"" + user.username + "\",\"password\":\"" + PASSWORD + "\"}");
+            case "get-user" -> get("users/" + user.id, user.token);
+            case "add-coins" -> post("users/" + user.id + "/add-coins?amount=10", user.token, "");
+            case "deduct-coins" -> post("users/" + user.id + "/deduct-coins?amount=10", user.token, "");
+            case "top-limcoins" -> get("users/top-limcoins?limit=10", adminToken);
+            default -> throw new IllegalArgumentException("Unknown operation " + operation);
+        };
+        try {
+            return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+        } catch (IOException e) {
+            return -1;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return -1;
+        }
+    }
+
+    private HttpRequest get(String path, String token) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Authorization", "Bearer " + token)
+                .timeout(Duration.ofSeconds(30))
+                .GET()
+                .build();
+    }
+
+    private HttpRequest post(String path, String token, String json) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Content-Type", "application/json")
+                .timeout(Duration.ofSeconds(30))
+                .POST(HttpRequest.BodyPublishers.ofString(json));
+        if (token != null) {
+            builder.header("Authorization", "Bearer " + token);
+        }
+        return builder.build();
+    }
+
+    private static String pick(Map<String, Integer> mix, int totalWeight) {
+        int roll = ThreadLocalRandom.current().nextInt(totalWeight);
+        for (Map.Entry<String, Integer> entry : mix.entrySet()) {
+            roll -= entry.getValue();
+            if (roll < 0) {
+                return entry.getKey();
+            }
+        }
+        throw new IllegalStateException("Empty traffic mix");
+    }
+
+    private static Map<String, Integer> parseMix(String mix) {
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        for (String part : mix.split(",")) {
+            String[] pair = part.trim().split(":");
+            weights.put(pair[0], Integer.parseInt(pair[1]));
+        }
+        return weights;
+    }
+
+    // Per operation, the figures of every stack side by side
+    private static Map<String, Object> compare() {
+        Map<String, Object> comparison = new LinkedHashMap<>();
+        SUMMARIES.entrySet().stream().sorted(Map.Entry.comparingByKey()).forEach(stack ->
+                stack.getValue().forEach((operation, figures) -> {
+                    @SuppressWarnings("unchecked")
+                    Map<String, Object> row = (Map<String, Object>) comparison.computeIfAbsent(
+                            operation, key -> new LinkedHashMap<String, Object>());
+                    Map<String, Object> selected = new LinkedHashMap<>();
+                    for (String key : List.of("throughputPerSecond", "p50Millis", "p99Millis", "p999Millis", "errors")) {
+                        selected.put(key, figures.get(key));
+                    }
+                    row.put(stack.getKey(), selected);
+                }));
+        return comparison;
+    }
+
+    private static void writeReport(String name, Map<String, Object> report) throws Exception {
+        String json;
+        try (Jsonb jsonb = JsonbBuilder.create(new JsonbConfig().withFormatting(true))) {
+            json = jsonb.toJson(report);
+        }
+        Path directory = Path.of(System.getProperty("loadtest.report-dir", "build/reports/loadtest"));
+        Files.createDirectories(directory);
+        Path file = directory.resolve(name + "-" + System.currentTimeMillis() + ".json");
+        Files.writeString(file, json);
+        System.out.println(json);
+        System.out.println("Load test report written to " + file.toAbsolutePath());
+    }
+
+    private record TestUser(Long id, String username, String token) {
+    }
+}
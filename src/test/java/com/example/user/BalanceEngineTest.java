@@ -0,0 +1,180 @@
+package com.example.user;
+
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * LimCoins with the write-behind engine on. The flush interval is long enough that nothing reaches
+ * the database unless a test calls flush() itself.
+ */
+@QuarkusTest
+@TestProfile(BalanceEngineTest.WriteBehindProfile.class)
+class BalanceEngineTest {
+
+    private static final String JOURNAL_DIR = "build/tmp/limcoins-journal-test";
+    private static final int THREADS = 16;
+
+    public static class WriteBehindProfile implements QuarkusTestProfile {
+        @Override
+        public Map<String, String> getConfigOverrides() {
+            return Map.of(
+                    "user.limcoins.write-behind.enabled", "true",
+                    "user.limcoins.write-behind.flush-interval", "1h",
+                    "user.limcoins.write-behind.journal-dir", JOURNAL_DIR,
+                    "user.limcoins.write-behind.journal-fsync", "true");
+        }
+    }
+
+    @Inject
+    LimCoinsService limCoinsService;
+
+    @Inject
+    BalanceEngine balanceEngine;
+
+    @Inject
+    EntityManager em;
+
+    @Test
+    void concurrentCreditsAndDebitsOnOneAccountAreNotLost() throws Exception {
+        Long id = createUser(500);
+
+        hammer(() -> {
+            for (int i = 0; i < 100; i++) {
+                limCoinsService.credit(id, 2);
+                limCoinsService.debit(id, 1);
+            }
+        });
+
+        int expected = 500 + THREADS * 100;
+        assertEquals(expected, balanceEngine.balanceOf(id));
+        assertEquals(500, storedBalance(id));
+
+        balanceEngine.flush();
+        assertEquals(expected, storedBalance(id));
+    }
+
+    @Test
+    void concurrentDebitsNeverOverdraw() throws Exception {
+        Long id = createUser(1000);
+
+        hammer(() -> {
+            for (int i = 0; i < 100; i++) {
+                limCoinsService.debit(id, 1);
+            }
+        });
+
+        assertEquals(0, balanceEngine.balanceOf(id));
+        balanceEngine.flush();
+        assertEquals(0, storedBalance(id));
+    }
+
+    @Test
+    void unflushedBalancesAreInTheJournal() {
+        Long id = createUser(10);
+        limCoinsService.credit(id, 5);
+        limCoinsService.debit(id, 3);
+
+        // What a restart would replay if the process died before the next flush
+        Map<Long, Long> replayed = new BalanceJournal(Path.of(JOURNAL_DIR), false).replay();
+        assertEquals(12L, replayed.get(id));
+        assertEquals(10, storedBalance(id));
+    }
+
+    @Test
+    void allOrNothingBatchIsAppliedWholeOrNotAtAll() {
+        Long rich = createUser(100);
+        Long poor = createUser(10);
+
+        List<CoinOperationResult> rolledBack = limCoinsService.applyBatch(List.of(
+                new CoinOperation(rich, -50),
+                new CoinOperation(poor, -20)), CoinBatchRequest.Mode.ALL_OR_NOTHING);
+        assertEquals(CoinOperationResult.Status.ROLLED_BACK, rolledBack.get(0).getStatus());
+        assertEquals(CoinOperationResult.Status.REJECTED, rolledBack.get(1).getStatus());
+        assertEquals(100, balanceEngine.balanceOf(rich));
+        assertEquals(10, balanceEngine.balanceOf(poor));
+
+        List<CoinOperationResult> applied = limCoinsService.applyBatch(List.of(
+                new CoinOperation(rich, -50),
+                new CoinOperation(poor, 50)), CoinBatchRequest.Mode.ALL_OR_NOTHING);
+        assertEquals(CoinOperationResult.Status.APPLIED, applied.get(0).getStatus());
+        assertEquals(CoinOperationResult.Status.APPLIED, applied.get(1).getStatus());
+
+        Map<Long, Long> replayed = new BalanceJournal(Path.of(JOURNAL_DIR), false).replay();
+        assertEquals(50L, replayed.get(rich));
+        assertEquals(60L, replayed.get(poor));
+    }
+
+    @Test
+    void minValueAmountIsRejectedInsteadOfOverflowing() {
+        Long id = createUser(10);
+
+        List<CoinOperationResult> results = limCoinsService.applyBatch(List.of(
+                new CoinOperation(id, Integer.MIN_VALUE)), CoinBatchRequest.Mode.PER_ITEM);
+
+        assertEquals(CoinOperationResult.Status.REJECTED, results.get(0).getStatus());
+        assertEquals(10, balanceEngine.balanceOf(id));
+    }
+
+    @Test
+    void operationsInsideACallerTransactionAreRefused() {
+        Long id = createUser(10);
+
+        assertThrows(IllegalStateException.class, () ->
+                QuarkusTransaction.requiringNew().run(() -> limCoinsService.credit(id, 1)));
+    }
+
+    private void hammer(Runnable work) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                work.run();
+                return null;
+            }));
+        }
+        start.countDown();
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private Long createUser(int limCoins) {
+        return QuarkusTransaction.requiringNew().call(() -> {
+            User user = new User();
+            user.setUsername("engine_" + UUID.randomUUID());
+            user.setEmail(user.getUsername() + "@example.com");
+            user.setPassword("not-a-real-hash");
+            user.setLimCoins(limCoins);
+            em.persist(user);
+            return user.getId();
+        });
+    }
+
+    private int storedBalance(Long id) {
+        return QuarkusTransaction.requiringNew().call(() -> em.find(User.class, id).getLimCoins());
+    }
+}
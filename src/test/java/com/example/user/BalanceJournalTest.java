@@ -0,0 +1,162 @@
+package com.example.user;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BalanceJournalTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void replaysRecordsOfAJournalThatWasNeverClosed() {
+        BalanceJournal journal = openJournal(false);
+        journal.append(1L, 10);
+        journal.append(2L, 20);
+        journal.append(1L, 15);
+        // No close(), as after a crash
+
+        assertEquals(Map.of(1L, 15L, 2L, 20L), new BalanceJournal(directory, false).replay());
+    }
+
+    @Test
+    void dropsATornTail() throws IOException {
+        BalanceJournal journal = openJournal(false);
+        journal.append(1L, 10);
+        journal.append(1L, 11);
+        journal.close();
+
+        truncateBy(activeFile(), 3);
+
+        assertEquals(Map.of(1L, 10L), new BalanceJournal(directory, false).replay());
+    }
+
+    @Test
+    void stopsAtARecordWithABadChecksum() throws IOException {
+        BalanceJournal journal = openJournal(false);
+        journal.append(1L, 10);
+        long recordSize = Files.size(activeFile());
+        journal.append(1L, 11);
+        journal.append(2L, 20);
+        journal.close();
+
+        // Flip a bit in the balance of the second record
+        byte[] bytes = Files.readAllBytes(activeFile());
+        bytes[(int) recordSize + Integer.BYTES + Long.BYTES + 7] ^= 1;
+        Files.write(activeFile(), bytes);
+
+        assertEquals(Map.of(1L, 10L), new BalanceJournal(directory, false).replay());
+    }
+
+    @Test
+    void replaysABatchWholeOrNotAtAll() throws IOException {
+        BalanceJournal journal = openJournal(false);
+        journal.append(1L, 10);
+        Map<Long, Long> batch = new LinkedHashMap<>();
+        batch.put(1L, 5L);
+        batch.put(2L, 25L);
+        batch.put(3L, 35L);
+        journal.write(batch);
+        journal.close();
+
+        assertEquals(Map.of(1L, 5L, 2L, 25L, 3L, 35L), new BalanceJournal(directory, false).replay());
+
+        // Losing only the last entry of the batch must not replay the first two
+        truncateBy(activeFile(), Integer.BYTES + Long.BYTES);
+        assertEquals(Map.of(1L, 10L), new BalanceJournal(directory, false).replay());
+    }
+
+    @Test
+    void rotateSealsTheActiveFileAndDeleteUpToRemovesIt() throws IOException {
+        BalanceJournal journal = openJournal(true);
+        journal.append(1L, 10);
+        long sealed = journal.rotate();
+        journal.append(1L, 12);
+
+        assertEquals(2, journalFiles().size());
+        assertEquals(Map.of(1L, 12L), new BalanceJournal(directory, false).replay());
+
+        journal.deleteUpTo(sealed);
+        assertEquals(1, journalFiles().size());
+        assertFalse(Files.exists(directory.resolve("limcoins-" + sealed + ".journal")));
+        journal.close();
+        assertEquals(Map.of(1L, 12L), new BalanceJournal(directory, false).replay());
+    }
+
+    @Test
+    void concurrentAppendsShareFsyncsWithoutLosingRecords() throws Exception {
+        BalanceJournal journal = openJournal(true);
+        int threads = 16;
+        int appends = 200;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            long userId = t;
+            futures.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < appends; i++) {
+                    journal.append(userId, i);
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        // Every append returned after its fsync, so nothing depends on close() here
+        Map<Long, Long> replayed = new BalanceJournal(directory, false).replay();
+        assertEquals(threads, replayed.size());
+        replayed.values().forEach(balance -> assertEquals(appends - 1L, (long) balance));
+        assertEquals((long) threads * appends * (Integer.BYTES * 2 + Long.BYTES * 2), Files.size(activeFile()));
+        journal.close();
+    }
+
+    private BalanceJournal openJournal(boolean fsync) {
+        BalanceJournal journal = new BalanceJournal(directory, fsync);
+        assertTrue(journal.replay().isEmpty());
+        journal.open();
+        return journal;
+    }
+
+    private Path activeFile() throws IOException {
+        List<Path> files = journalFiles();
+        return files.get(files.size() - 1);
+    }
+
+    private List<Path> journalFiles() throws IOException {
+        try (var stream = Files.list(directory)) {
+            return stream.sorted().toList();
+        }
+    }
+
+    private static void truncateBy(Path file, int bytes) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - bytes);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.user;
+
+import io.quarkus.test.common.QuarkusTestResource;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+import org.junit.jupiter.api.Tag;
+
+import java.util.Map;
+
+/**
+ * The same load test with GET /users/{id} holding its worker thread until the Pokémon and
+ * Enchère lists arrive, as the classic stack did.
+ */
+@QuarkusTest
+@Tag("load")
+@TestProfile(BlockingUserLoadTest.BlockingProfile.class)
+@QuarkusTestResource(value = StubDownstreamServices.class, restrictToAnnotatedClass = true)
+class BlockingUserLoadTest extends AbstractUserLoadTest {
+
+    @Override
+    String stack() {
+        return "blocking";
+    }
+
+    public static class BlockingProfile implements QuarkusTestProfile {
+        @Override
+        public Map<String, String> getConfigOverrides() {
+            return Map.of("user.profile.non-blocking", "false");
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.user;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps every latency sample of a load test run per operation and turns them into throughput
+ * and percentile figures. Runs are short enough for exact percentiles over all samples.
+ */
+class LatencyRecorder {
+
+    private final Map<String, Samples> byOperation = new ConcurrentHashMap<>();
+
+    void record(String operation, long nanos, int status) {
+        byOperation.computeIfAbsent(operation, key -> new Samples()).add(nanos, status);
+    }
+
+    long total() {
+        return byOperation.values().stream().mapToLong(Samples::count).sum();
+    }
+
+    long errors() {
+        return byOperation.values().stream().mapToLong(Samples::errors).sum();
+    }
+
+    long throttled() {
+        return byOperation.values().stream().mapToLong(Samples::throttled).sum();
+    }
+
+    // Per operation plus an "all" row, in a shape that serializes straight to JSON
+    Map<String, Map<String, Object>> summarize(double seconds) {
+        Map<String, Map<String, Object>> report = new LinkedHashMap<>();
+        Samples all = new Samples();
+        byOperation.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .forEach(entry -> {
+                    report.put(entry.getKey(), entry.getValue().summarize(seconds));
+                    all.addAll(entry.getValue());
+                });
+        report.put("all", all.summarize(seconds));
+        return report;
+    }
+
+    private static final class Samples {
+        private long[] nanos = new long[1024];
+        private int size;
+        private long rejected;
+        private long throttled;
+        private long errors;
+
+        private synchronized void add(long latency, int status) {
+            if (size == nanos.length) {
+                nanos = Arrays.copyOf(nanos, size * 2);
+            }
+            nanos[size++] = latency;
+            // 4xx are answers (insufficient coins, bad credentials), 5xx and I/O failures are errors.
+            // A 429 is neither: the login throttle answered instead of the code under test
+            if (status >= 500 || status < 0) {
+                errors++;
+            } else if (status == 429) {
+                throttled++;
+            } else if (status >= 400) {
+                rejected++;
+            }
+        }
+
+        private synchronized void addAll(Samples other) {
+            synchronized (other) {
+                for (int i = 0; i < other.size; i++) {
+                    add(other.nanos[i], 200);
+                }
+                rejected += other.rejected;
+                throttled += other.throttled;
+                errors += other.errors;
+            }
+        }
+
+        private synchronized long count() {
+            return size;
+        }
+
+        private synchronized long errors() {
+            return errors;
+        }
+
+        private synchronized long throttled() {
+            return throttled;
+        }
+
+        private synchronized Map<String, Object> summarize(double seconds) {
+            long[] sorted = Arrays.copyOf(nanos, size);
+            Arrays.sort(sorted);
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("requests", size);
+            summary.put("rejected", rejected);
+            summary.put("throttled", throttled);
+            summary.put("errors", errors);
+            summary.put("throughputPerSecond", round(size / seconds));
+            summary.put("p50Millis", percentile(sorted, 0.50));
+            summary.put("p99Millis", percentile(sorted, 0.99));
+            summary.put("p999Millis", percentile(sorted, 0.999));
+            summary.put("maxMillis", sorted.length == 0 ? 0 : round(sorted[sorted.length - 1] / 1e6));
+            return summary;
+        }
+
+        private static double percentile(long[] sorted, double quantile) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(quantile * sorted.length) - 1;
+            return round(sorted[Math.max(0, index)] / 1e6);
+        }
+
+        private static double round(double value) {
+            return Math.round(value * 100) / 100.0;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.user;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class LeaderboardTest {
+
+    @Test
+    void ranksByBalanceThenByLowerId() {
+        Leaderboard leaderboard = new Leaderboard();
+        leaderboard.update(1L, 100);
+        leaderboard.update(2L, 300);
+        leaderboard.update(3L, 100);
+        leaderboard.update(4L, 200);
+
+        List<LeaderboardEntry> top = leaderboard.page(0, 3);
+        assertEquals(List.of(2L, 4L, 1L), top.stream().map(LeaderboardEntry::getUserId).toList());
+        assertEquals(4, leaderboard.rankOf(3L).getRank());
+
+        leaderboard.update(3L, 500);
+        assertEquals(1, leaderboard.rankOf(3L).getRank());
+
+        leaderboard.remove(2L);
+        assertNull(leaderboard.rankOf(2L));
+        assertEquals(3, leaderboard.size());
+    }
+
+    @Test
+    void matchesAFullSortUnderRandomUpdates() {
+        Leaderboard leaderboard = new Leaderboard();
+        Map<Long, Long> balances = new HashMap<>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 20_000; i++) {
+            long userId = random.nextInt(500);
+            if (random.nextInt(10) == 0) {
+                leaderboard.remove(userId);
+                balances.remove(userId);
+            } else {
+                long balance = random.nextInt(1000);
+                leaderboard.update(userId, balance);
+                balances.put(userId, balance);
+            }
+        }
+
+        List<Map.Entry<Long, Long>> expected = new ArrayList<>(balances.entrySet());
+        expected.sort((a, b) -> {
+            int byBalance = Long.compare(b.getValue(), a.getValue());
+            return byBalance != 0 ? byBalance : Long.compare(a.getKey(), b.getKey());
+        });
+
+        List<LeaderboardEntry> page = leaderboard.page(10, 50);
+        for (int i = 0; i < page.size(); i++) {
+            assertEquals(expected.get(10 + i).getKey(), page.get(i).getUserId());
+            assertEquals(11 + i, page.get(i).getRank());
+        }
+        for (int rank = 0; rank < expected.size(); rank++) {
+            assertEquals(rank + 1, leaderboard.rankOf(expected.get(rank).getKey()).getRank());
+        }
+    }
+}
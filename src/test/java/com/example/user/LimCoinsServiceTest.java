@@ -0,0 +1,175 @@
+package com.example.user;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+@QuarkusTest
+class LimCoinsServiceTest {
+
+    private static final int THREADS = 16;
+
+    @Inject
+    LimCoinsService limCoinsService;
+
+    @Inject
+    EntityManager em;
+
+    @Inject
+    MeterRegistry registry;
+
+    @Inject
+    LeaderboardService leaderboardService;
+
+    @Test
+    void concurrentDebitsNeverOverdraw() throws Exception {
+        Long id = createUser(1000);
+        AtomicInteger succeeded = new AtomicInteger();
+
+        // 1600 single-coin debits against a balance of 1000
+        hammer(() -> {
+            for (int i = 0; i < 100; i++) {
+                if (limCoinsService.debit(id, 1)) {
+                    succeeded.incrementAndGet();
+                }
+            }
+        });
+
+        assertEquals(1000, succeeded.get());
+        assertEquals(0, balanceOf(id));
+    }
+
+    @Test
+    void concurrentCreditsAndDebitsAreNotLost() throws Exception {
+        Long id = createUser(500);
+
+        hammer(() -> {
+            for (int i = 0; i < 100; i++) {
+                limCoinsService.credit(id, 2);
+                limCoinsService.debit(id, 1);
+            }
+        });
+
+        assertEquals(500 + THREADS * 100, balanceOf(id));
+    }
+
+    @Test
+    void coinVolumeAndRejectionsAreCounted() {
+        Long id = createUser(10);
+        double credited = registry.counter("limcoins.credited").count();
+        double debited = registry.counter("limcoins.debited").count();
+        double rejected = registry.counter("limcoins.rejected", "reason", "insufficient_funds").count();
+
+        limCoinsService.credit(id, 5);
+        limCoinsService.debit(id, 12);
+        assertFalse(limCoinsService.debit(id, 100));
+
+        assertEquals(credited + 5, registry.counter("limcoins.credited").count());
+        assertEquals(debited + 12, registry.counter("limcoins.debited").count());
+        assertEquals(rejected + 1, registry.counter("limcoins.rejected", "reason", "insufficient_funds").count());
+    }
+
+    @Test
+    void leaderboardOnlySeesCommittedBalances() {
+        Long id = createUser(10);
+
+        QuarkusTransaction.requiringNew().run(() -> {
+            limCoinsService.credit(id, 50);
+            assertNull(leaderboardService.rankOf(id));
+            QuarkusTransaction.setRollbackOnly();
+        });
+        assertNull(leaderboardService.rankOf(id));
+
+        limCoinsService.credit(id, 5);
+        assertEquals(15, leaderboardService.rankOf(id).getLimCoins());
+    }
+
+    @Test
+    void debitFailsForUnknownUser() {
+        assertFalse(limCoinsService.debit(Long.MAX_VALUE, 1));
+        assertFalse(limCoinsService.credit(Long.MAX_VALUE, 1));
+    }
+
+    @Test
+    void allOrNothingBatchRollsBackWhenAnyOperationIsRejected() {
+        Long rich = createUser(100);
+        Long poor = createUser(10);
+
+        List<CoinOperationResult> results = limCoinsService.applyBatch(List.of(
+                new CoinOperation(rich, -50),
+                new CoinOperation(poor, -20)), CoinBatchRequest.Mode.ALL_OR_NOTHING);
+
+        assertEquals(CoinOperationResult.Status.ROLLED_BACK, results.get(0).getStatus());
+        assertEquals(CoinOperationResult.Status.REJECTED, results.get(1).getStatus());
+        assertEquals(100, balanceOf(rich));
+        assertEquals(10, balanceOf(poor));
+    }
+
+    @Test
+    void perItemBatchAppliesOperationsInOrder() {
+        Long id = createUser(0);
+
+        List<CoinOperationResult> results = limCoinsService.applyBatch(List.of(
+                new CoinOperation(id, -5),
+                new CoinOperation(id, 30),
+                new CoinOperation(id, -20)), CoinBatchRequest.Mode.PER_ITEM);
+
+        assertEquals(CoinOperationResult.Status.REJECTED, results.get(0).getStatus());
+        assertEquals(CoinOperationResult.Status.APPLIED, results.get(1).getStatus());
+        assertEquals(CoinOperationResult.Status.APPLIED, results.get(2).getStatus());
+        assertEquals(10, balanceOf(id));
+    }
+
+    private void hammer(Runnable work) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                work.run();
+                return null;
+            }));
+        }
+        start.countDown();
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private Long createUser(int limCoins) {
+        return QuarkusTransaction.requiringNew().call(() -> {
+            User user = new User();
+            user.setUsername("coins_" + UUID.randomUUID());
+            user.setEmail(user.getUsername() + "@example.com");
+            user.setPassword("not-a-real-hash");
+            user.setLimCoins(limCoins);
+            em.persist(user);
+            return user.getId();
+        });
+    }
+
+    private int balanceOf(Long id) {
+        return QuarkusTransaction.requiringNew().call(() -> em.find(User.class, id).getLimCoins());
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.user;
+
+import com.example.user.exceptions.LoginThrottledException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.test.junit.QuarkusTest;
+import io.restassured.http.ContentType;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static io.restassured.RestAssured.given;
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * The default throttle settings: five attempts per username, and no per-client bucket since the
+ * remote address may be a load balancer.
+ */
+@QuarkusTest
+class LoginThrottleTest {
+
+    @Inject
+    LoginThrottle loginThrottle;
+
+    @Inject
+    MeterRegistry registry;
+
+    @Test
+    void usernameBucketRejectsTheSixthAttempt() {
+        String username = "throttled-" + UUID.randomUUID();
+        for (int i = 0; i < 5; i++) {
+            loginThrottle.acquire(username, "10.0.0.1");
+        }
+
+        LoginThrottledException e = assertThrows(LoginThrottledException.class,
+                () -> loginThrottle.acquire(username, "10.0.0.1"));
+        assertEquals(429, e.getResponse().getStatus());
+        assertNotNull(e.getResponse().getHeaderString("Retry-After"));
+    }
+
+    @Test
+    void clientAddressIsNotThrottledUnlessEnabled() {
+        // Far more than the client capacity, all from the same address as behind a load balancer
+        for (int i = 0; i < 200; i++) {
+            String username = "shared-client-" + UUID.randomUUID();
+            assertDoesNotThrow(() -> loginThrottle.acquire(username, "10.0.0.2"));
+        }
+    }
+
+    @Test
+    void decisionsArePublishedAsMeters() {
+        double allowed = attempts("allowed");
+        double throttled = attempts("throttled");
+        String username = "metered-" + UUID.randomUUID();
+
+        for (int i = 0; i < 6; i++) {
+            try {
+                loginThrottle.acquire(username, null);
+            } catch (LoginThrottledException e) {
+                // The sixth one
+            }
+        }
+
+        assertEquals(allowed + 5, attempts("allowed"));
+        assertEquals(throttled + 1, attempts("throttled"));
+    }
+
+    @Test
+    void unknownUsernamesAreCachedAndCounted() {
+        String username = "nobody-" + UUID.randomUUID();
+        double hits = registry.get("login.throttle.unknown-username.hits").functionCounter().count();
+
+        login(username).then().statusCode(401);
+        login(username).then().statusCode(401);
+
+        assertEquals(hits + 1, registry.get("login.throttle.unknown-username.hits").functionCounter().count());
+    }
+
+    @Test
+    void loginWithoutABodyIsABadRequest() {
+        given().contentType(ContentType.JSON)
+                .when().post("/users/login")
+                .then().statusCode(400);
+        given().contentType(ContentType.JSON).body("{}")
+                .when().post("/users/login")
+                .then().statusCode(400);
+    }
+
+    private io.restassured.response.Response login(String username) {
+        return given().contentType(ContentType.JSON)
+                .body("{\"username\":\"" + username + "\",\"password\":\"wrong-password\"}")
+                .when().post("/users/login");
+    }
+
+    private double attempts(String outcome) {
+        return registry.get("login.throttle.attempts").tag("outcome", outcome).functionCounter().count();
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.user;
+
+import com.example.utils.JwtUtils;
+import io.quarkus.test.common.QuarkusTestResource;
+import io.quarkus.test.common.ResourceArg;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.UUID;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.nullValue;
+
+/**
+ * The production setting: the opt-in header only counts for authenticated callers in the header
+ * roles, so anonymous logins and plain users can't read server-side timings.
+ */
+@QuarkusTest
+@TestProfile(ServerTimingRolesTest.HeaderRolesProfile.class)
+@QuarkusTestResource(value = StubDownstreamServices.class, restrictToAnnotatedClass = true, initArgs = {
+        @ResourceArg(name = "latency-median-ms", value = "2"),
+        @ResourceArg(name = "latency-p99-ms", value = "5"),
+        @ResourceArg(name = "error-rate", value = "0"),
+        @ResourceArg(name = "items", value = "3")})
+class ServerTimingRolesTest {
+
+    private static final String PASSWORD = "server-timing-password";
+
+    @Inject
+    UserService userService;
+
+    private String username;
+    private Long id;
+
+    @BeforeEach
+    void createUser() {
+        username = "timing-roles-" + UUID.randomUUID();
+        User user = new User();
+        user.setUsername(username);
+        user.setEmail(username + "@example.com");
+        user.setPassword(PASSWORD);
+        userService.registerUser(user);
+        id = user.getId();
+    }
+
+    @Test
+    void anonymousLoginCannotOptIn() {
+        given()
+                .contentType("application/json")
+                .header(ServerTimingFilter.REQUEST_HEADER, "1")
+                .body("{\"username\":\"" + username + "\",\"password\":\"" + PASSWORD + "\"}")
+                .when().post("/users/login")
+                .then()
+                .statusCode(200)
+                .header("Server-Timing", nullValue());
+    }
+
+    @Test
+    void userOutsideTheHeaderRolesCannotOptIn() {
+        given()
+                .auth().oauth2(JwtUtils.generateToken(username, "User"))
+                .header(ServerTimingFilter.REQUEST_HEADER, "1")
+                .when().get("/users/" + id)
+                .then()
+                .statusCode(200)
+                .header("Server-Timing", nullValue());
+    }
+
+    @Test
+    void adminCanOptIn() {
+        given()
+                .auth().oauth2(JwtUtils.generateToken("timing-admin", "Admin"))
+                .header(ServerTimingFilter.REQUEST_HEADER, "1")
+                .when().get("/users/" + id)
+                .then()
+                .statusCode(200)
+                .header("Server-Timing", containsString("pokemon;dur="));
+
+        given()
+                .auth().oauth2(JwtUtils.generateToken("timing-admin", "Admin"))
+                .when().get("/users/" + id)
+                .then()
+                .statusCode(200)
+                .header("Server-Timing", nullValue());
+    }
+
+    public static class HeaderRolesProfile implements QuarkusTestProfile {
+        @Override
+        public Map<String, String> getConfigOverrides() {
+            return Map.of(
+                    "user.server-timing.allow-request-header", "false",
+                    "user.server-timing.header-roles", "Admin");
+        }
+    }
+}
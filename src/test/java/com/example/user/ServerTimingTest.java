@@ -0,0 +1,90 @@
+package com.example.user;
+
+import com.example.utils.JwtUtils;
+import io.quarkus.test.common.QuarkusTestResource;
+import io.quarkus.test.common.ResourceArg;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.CoreMatchers.allOf;
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+
+// The test profile honours the opt-in header from anyone, ServerTimingRolesTest covers the default
+@QuarkusTest
+@QuarkusTestResource(value = StubDownstreamServices.class, restrictToAnnotatedClass = true, initArgs = {
+        @ResourceArg(name = "latency-median-ms", value = "2"),
+        @ResourceArg(name = "latency-p99-ms", value = "5"),
+        @ResourceArg(name = "error-rate", value = "0"),
+        @ResourceArg(name = "items", value = "3")})
+class ServerTimingTest {
+
+    private static final String PASSWORD = "server-timing-password";
+
+    @Inject
+    UserService userService;
+
+    private String username;
+    private Long id;
+
+    @BeforeEach
+    void createUser() {
+        username = "timing-" + UUID.randomUUID();
+        User user = new User();
+        user.setUsername(username);
+        user.setEmail(username + "@example.com");
+        user.setPassword(PASSWORD);
+        userService.registerUser(user);
+        id = user.getId();
+    }
+
+    @Test
+    void loginReportsStagesWhenRequested() {
+        given()
+                .contentType("application/json")
+                .header(ServerTimingFilter.REQUEST_HEADER, "1")
+                .body("{\"username\":\"" + username + "\",\"password\":\"" + PASSWORD + "\"}")
+                .when().post("/users/login")
+                .then()
+                .statusCode(200)
+                .header("Server-Timing", allOf(
+                        containsString("db;dur="),
+                        containsString("bcrypt;dur="),
+                        containsString("jwt;dur="),
+                        containsString("total;dur=")));
+    }
+
+    @Test
+    void profileReportsDownstreamAndSerializationStages() {
+        given()
+                .auth().oauth2(JwtUtils.generateToken(username, "User"))
+                .header(ServerTimingFilter.REQUEST_HEADER, "1")
+                .when().get("/users/" + id)
+                .then()
+                .statusCode(200)
+                .body("username", equalTo(username))
+                .header("Server-Timing", allOf(
+                        containsString("db;dur="),
+                        containsString("pokemon;dur="),
+                        containsString("enchere;dur="),
+                        containsString("json;dur="),
+                        containsString("total;dur=")));
+    }
+
+    @Test
+    void noHeaderWithoutOptIn() {
+        given()
+                .contentType("application/json")
+                .body("{\"username\":\"" + username + "\",\"password\":\"" + PASSWORD + "\"}")
+                .when().post("/users/login")
+                .then()
+                .statusCode(200)
+                .header("Server-Timing", nullValue());
+    }
+}
@@ -0,0 +1,182 @@
+package com.example.user;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.quarkus.test.common.QuarkusTestResourceLifecycleManager;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.LongFunction;
+
+/**
+ * In-process stand-ins for the Pokémon and Enchère services, implementing the PokemonClient and
+ * EnchereClient contracts. Every response waits for a log-normal latency and a configurable share
+ * of them fail with 503, so the service sees a realistic downstream:
+ * <ul>
+ *     <li>loadtest.stub.latency-median-ms (default 20)</li>
+ *     <li>loadtest.stub.latency-p99-ms (default 150)</li>
+ *     <li>loadtest.stub.error-rate (default 0.005)</li>
+ *     <li>loadtest.stub.items, entries per list (default 20)</li>
+ * </ul>
+ * The same names without the loadtest.stub. prefix can be given as resource init args.
+ */
+public class StubDownstreamServices implements QuarkusTestResourceLifecycleManager {
+
+    private static final double Z_99 = 2.326;
+
+    private double mu;
+    private double sigma;
+    private double errorRate;
+    private int items;
+
+    private ExecutorService executor;
+    private HttpServer pokemons;
+    private HttpServer encheres;
+
+    @Override
+    public void init(Map<String, String> initArgs) {
+        mu = Math.log(Long.parseLong(setting(initArgs, "latency-median-ms", "20")));
+        sigma = Math.max(0, (Math.log(Long.parseLong(setting(initArgs, "latency-p99-ms", "150"))) - mu) / Z_99);
+        errorRate = Double.parseDouble(setting(initArgs, "error-rate", "0.005"));
+        items = Integer.parseInt(setting(initArgs, "items", "20"));
+    }
+
+    private static String setting(Map<String, String> initArgs, String name, String defaultValue) {
+        String value = initArgs.get(name);
+        return value != null ? value : System.getProperty("loadtest.stub." + name, defaultValue);
+    }
+
+    @Override
+    public Map<String, String> start() {
+        // Latency is simulated by sleeping, so every exchange gets its own virtual thread
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        pokemons = startServer("/pokemons", this::pokemonsJson);
+        encheres = startServer("/encheres", this::encheresJson);
+
+        Map<String, String> config = new HashMap<>();
+        config.put("mp.rest.client.\"com.example.user.PokemonClient\".url",
+                "http://localhost:" + pokemons.getAddress().getPort());
+        config.put("mp.rest.client.\"com.example.user.EnchereClient\".url",
+                "http://localhost:" + encheres.getAddress().getPort());
+        // The load driver logs the same users in over and over from one address
+        config.put("user.login.throttle.enabled", "false");
+        return config;
+    }
+
+    @Override
+    public void stop() {
+        if (pokemons != null) {
+            pokemons.stop(0);
+        }
+        if (encheres != null) {
+            encheres.stop(0);
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    private HttpServer startServer(String root, LongFunction<String> listJson) {
+        try {
+            HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 1024);
+            server.setExecutor(executor);
+            server.createContext(root, exchange -> handle(exchange, root, listJson));
+            server.start();
+            return server;
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not start stub for " + root, e);
+        }
+    }
+
+    private void handle(HttpExchange exchange, String root, LongFunction<String> listJson) throws IOException {
+        try {
+            simulateLatency();
+            if (ThreadLocalRandom.current().nextDouble() < errorRate) {
+                exchange.sendResponseHeaders(503, -1);
+                return;
+            }
+            String path = exchange.getRequestURI().getPath().substring(root.length());
+            if ("POST".equals(exchange.getRequestMethod())) {
+                exchange.getRequestBody().readAllBytes();
+                exchange.sendResponseHeaders(204, -1);
+            } else if (path.startsWith("/user/")) {
+                send(exchange, listJson.apply(Long.parseLong(path.substring("/user/".length()))));
+            } else if (path.equals("/users")) {
+                send(exchange, bulkJson(exchange.getRequestURI().getQuery(), listJson));
+            } else {
+                exchange.sendResponseHeaders(404, -1);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void simulateLatency() {
+        long millis = Math.round(Math.exp(mu + sigma * ThreadLocalRandom.current().nextGaussian()));
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void send(HttpExchange exchange, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(body);
+        }
+    }
+
+    // ids=1,2,3 -> {"1":[...],"2":[...],"3":[...]}
+    private static String bulkJson(String query, LongFunction<String> listJson) {
+        StringBuilder json = new StringBuilder("{");
+        if (query != null && query.startsWith("ids=")) {
+            for (String id : query.substring("ids=".length()).split(",")) {
+                if (json.length() > 1) {
+                    json.append(',');
+                }
+                json.append('"').append(id).append("\":").append(listJson.apply(Long.parseLong(id)));
+            }
+        }
+        return json.append('}').toString();
+    }
+
+    private String pokemonsJson(long userId) {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < items; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            long id = userId * 1000 + i;
+            json.append("{\"id\":").append(id)
+                    .append(",\"nom\":\"Pokemon ").append(id)
+                    .append("\",\"description\":\"Stub pokemon\",\"miseAPrix\":100,\"valeurReelle\":120")
+                    .append(",\"types\":[\"fire\"],\"stats\":{\"hp\":50,\"attack\":60}}");
+        }
+        return json.append(']').toString();
+    }
+
+    private String encheresJson(long userId) {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < items; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"id\":").append(userId * 1000 + i)
+                    .append(",\"userId\":").append(userId)
+                    .append(",\"pokemonId\":").append(i)
+                    .append(",\"startingPrice\":100.0,\"highestBid\":150.0,\"highestBidderId\":1")
+                    .append(",\"dateExpiration\":\"2030-01-01T12:00:00\",\"status\":\"actif\"}");
+        }
+        return json.append(']').toString();
+    }
+}
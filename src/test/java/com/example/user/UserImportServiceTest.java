@@ -0,0 +1,127 @@
+package com.example.user;
+
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Imports with a chunk size of two, so every file below spans several chunks. BCrypt runs at its
+ * lowest cost to keep the hashing out of the way.
+ */
+@QuarkusTest
+@TestProfile(UserImportServiceTest.SmallChunksProfile.class)
+class UserImportServiceTest {
+
+    public static class SmallChunksProfile implements QuarkusTestProfile {
+        @Override
+        public Map<String, String> getConfigOverrides() {
+            return Map.of(
+                    "user.import.chunk-size", "2",
+                    "user.password.bcrypt-cost", "4");
+        }
+    }
+
+    @Inject
+    UserImportService importService;
+
+    @Inject
+    EntityManager em;
+
+    @Test
+    void importsEveryChunkAndKeepsGivenBalances() throws Exception {
+        String prefix = prefix();
+        ImportReport report = importLines(
+                user(prefix + "a", null),
+                user(prefix + "b", 250),
+                "",
+                user(prefix + "c", null),
+                user(prefix + "d", 0),
+                user(prefix + "e", null));
+
+        assertEquals(5, report.getImported());
+        assertEquals(0, report.getFailed());
+        assertEquals(1000, find(prefix + "a").getLimCoins());
+        assertEquals(250, find(prefix + "b").getLimCoins());
+        assertEquals(0, find(prefix + "d").getLimCoins());
+        assertTrue(find(prefix + "e").getPassword().startsWith("$2a$04$"));
+    }
+
+    @Test
+    void reportsRejectedLinesWithTheirLineNumbers() throws Exception {
+        String prefix = prefix();
+        ImportReport report = importLines(
+                user(prefix + "a", null),
+                user(prefix + "b", null),
+                "{not json",
+                "{\"username\":\"" + prefix + "c\"}",
+                user(prefix + "d", -5),
+                // Same username as line 1, which the first chunk already committed
+                user(prefix + "a", null),
+                user(prefix + "e", null),
+                // Same username as line 7, only caught by the query of the last chunk
+                user(prefix + "e", null));
+
+        assertEquals(3, report.getImported());
+        assertEquals(5, report.getFailed());
+        List<Long> lines = report.getErrors().stream().map(ImportReport.LineError::getLine).toList();
+        assertEquals(List.of(3L, 4L, 5L, 6L, 8L), lines);
+        assertEquals("All fields are required.", report.getErrors().get(1).getMessage());
+        assertEquals("Username already exists.", report.getErrors().get(3).getMessage());
+        assertEquals("Username already exists.", report.getErrors().get(4).getMessage());
+        assertNull(find(prefix + "c"));
+    }
+
+    @Test
+    void aChunkTheDatabaseRefusesIsRetriedRowByRow() throws Exception {
+        String prefix = prefix();
+        // Passes the duplicate checks but not the column length, so only the insert fails
+        String tooLong = prefix + "x".repeat(300);
+        ImportReport report = importLines(
+                user(prefix + "a", null),
+                user(prefix + "b", null),
+                user(tooLong, null),
+                user(prefix + "c", null));
+
+        assertEquals(3, report.getImported());
+        assertEquals(1, report.getFailed());
+        assertEquals(3L, report.getErrors().get(0).getLine());
+        assertNotNull(find(prefix + "c"));
+        assertNull(find(tooLong));
+    }
+
+    private ImportReport importLines(String... lines) throws Exception {
+        byte[] body = String.join("\n", lines).getBytes(StandardCharsets.UTF_8);
+        return importService.importUsers(new ByteArrayInputStream(body));
+    }
+
+    private static String prefix() {
+        return "import-" + UUID.randomUUID().toString().substring(0, 8) + "-";
+    }
+
+    private static String user(String username, Integer limCoins) {
+        return "{\"username\":\"" + username + "\",\"email\":\"" + username + "@example.com\",\"password\":\"secret\""
+                + (limCoins == null ? "" : ",\"limCoins\":" + limCoins) + "}";
+    }
+
+    private User find(String username) {
+        return QuarkusTransaction.requiringNew().call(() -> em.createQuery(
+                        "SELECT u FROM User u WHERE u.username = :username", User.class)
+                .setParameter("username", username)
+                .getResultStream().findFirst().orElse(null));
+    }
+}
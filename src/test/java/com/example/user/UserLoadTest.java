@@ -0,0 +1,19 @@
+package com.example.user;
+
+import io.quarkus.test.common.QuarkusTestResource;
+import io.quarkus.test.junit.QuarkusTest;
+import org.junit.jupiter.api.Tag;
+
+/**
+ * The load test against the default, non-blocking GET /users/{id}.
+ */
+@QuarkusTest
+@Tag("load")
+@QuarkusTestResource(value = StubDownstreamServices.class, restrictToAnnotatedClass = true)
+class UserLoadTest extends AbstractUserLoadTest {
+
+    @Override
+    String stack() {
+        return "non-blocking";
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.user;
+
+import com.example.utils.JwtUtils;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.test.junit.QuarkusTest;
+import io.restassured.path.json.JsonPath;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static io.restassured.RestAssured.given;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Keyset pages of GET /users and the NDJSON dump of GET /users/stream.
+ */
+@QuarkusTest
+class UserPagingTest {
+
+    @Inject
+    EntityManager em;
+
+    private final List<Long> ids = new ArrayList<>();
+    private String adminToken;
+
+    @BeforeEach
+    void createUsers() {
+        adminToken = JwtUtils.generateToken("paging-admin", "Admin");
+        String prefix = "paging-" + UUID.randomUUID() + "-";
+        QuarkusTransaction.requiringNew().run(() -> {
+            for (int i = 0; i < 5; i++) {
+                User user = new User();
+                user.setUsername(prefix + i);
+                user.setEmail(prefix + i + "@example.com");
+                user.setPassword("not-a-real-hash");
+                em.persist(user);
+                em.flush();
+                ids.add(user.getId());
+            }
+        });
+    }
+
+    @Test
+    void pagesFollowTheCursorUntilItRunsOut() {
+        // Nothing was created after these five, so paging from just before the first one ends with them
+        JsonPath first = page(ids.get(0) - 1, 2);
+        assertEquals(ids.subList(0, 2), itemIds(first));
+        assertEquals(ids.get(1), first.getLong("nextCursor"));
+
+        JsonPath second = page(first.getLong("nextCursor"), 2);
+        assertEquals(ids.subList(2, 4), itemIds(second));
+        assertEquals(ids.get(3), second.getLong("nextCursor"));
+
+        JsonPath last = page(second.getLong("nextCursor"), 2);
+        assertEquals(ids.subList(4, 5), itemIds(last));
+        assertNull(last.get("nextCursor"));
+    }
+
+    @Test
+    void aPageExactlyFullHasNoNextCursor() {
+        JsonPath page = page(ids.get(0) - 1, 5);
+        assertEquals(ids, itemIds(page));
+        assertNull(page.get("nextCursor"));
+    }
+
+    @Test
+    void limitOutsideTheAllowedRangeIsABadRequest() {
+        given().auth().oauth2(adminToken)
+                .queryParam("limit", 0)
+                .when().get("/users")
+                .then().statusCode(400);
+        given().auth().oauth2(adminToken)
+                .queryParam("limit", 1001)
+                .when().get("/users")
+                .then().statusCode(400);
+    }
+
+    @Test
+    void streamWritesEveryUserOnItsOwnLineInIdOrder() {
+        String body = given().auth().oauth2(adminToken)
+                .when().get("/users/stream")
+                .then().statusCode(200)
+                .contentType("application/x-ndjson")
+                .extract().asString();
+
+        List<Long> streamed = new ArrayList<>();
+        for (String line : body.split("\n")) {
+            assertTrue(line.startsWith("{") && line.endsWith("}"), line);
+            streamed.add(new JsonPath(line).getLong("id"));
+        }
+        long stored = QuarkusTransaction.requiringNew().call(() ->
+                em.createQuery("SELECT COUNT(u) FROM User u", Long.class).getSingleResult());
+        assertEquals(stored, streamed.size());
+        assertEquals(streamed.stream().sorted().toList(), streamed);
+        assertTrue(streamed.containsAll(ids));
+    }
+
+    private JsonPath page(long after, int limit) {
+        return given().auth().oauth2(adminToken)
+                .queryParam("after", after)
+                .queryParam("limit", limit)
+                .when().get("/users")
+                .then().statusCode(200)
+                .extract().jsonPath();
+    }
+
+    private static List<Long> itemIds(JsonPath page) {
+        return page.getList("items.id", Long.class);
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.user;
+
+import com.example.utils.JwtUtils;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.container.ContainerRequestFilter;
+import jakarta.ws.rs.ext.Provider;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * UserResource and AdminResource with quarkus.virtual-threads.enabled=true: requests are served on
+ * virtual threads, the pinning monitor runs, and concurrent coin operations still add up.
+ */
+@QuarkusTest
+@TestProfile(VirtualThreadModeTest.VirtualThreadsProfile.class)
+class VirtualThreadModeTest {
+
+    private static final String PASSWORD = "virtual-thread-password";
+    private static final int THREADS = 16;
+
+    public static class VirtualThreadsProfile implements QuarkusTestProfile {
+        @Override
+        public Map<String, String> getConfigOverrides() {
+            return Map.of("quarkus.virtual-threads.enabled", "true");
+        }
+    }
+
+    // Request filters of blocking endpoints run on the thread the method will run on
+    @Provider
+    public static class ThreadRecorder implements ContainerRequestFilter {
+        static volatile Boolean lastRequestVirtual;
+
+        @Override
+        public void filter(ContainerRequestContext request) {
+            lastRequestVirtual = Thread.currentThread().isVirtual();
+        }
+    }
+
+    @Inject
+    UserService userService;
+
+    @Inject
+    EntityManager em;
+
+    private String username;
+    private Long id;
+
+    @BeforeEach
+    void createUser() {
+        username = "virtual-" + UUID.randomUUID();
+        User user = new User();
+        user.setUsername(username);
+        user.setEmail(username + "@example.com");
+        user.setPassword(PASSWORD);
+        userService.registerUser(user);
+        id = user.getId();
+    }
+
+    @Test
+    void loginAndAdminRequestsRunOnVirtualThreads() {
+        ThreadRecorder.lastRequestVirtual = null;
+        given().contentType("application/json")
+                .body("{\"username\":\"" + username + "\",\"password\":\"" + PASSWORD + "\"}")
+                .when().post("/users/login")
+                .then().statusCode(200);
+        assertEquals(Boolean.TRUE, ThreadRecorder.lastRequestVirtual);
+
+        ThreadRecorder.lastRequestVirtual = null;
+        given().auth().oauth2(JwtUtils.generateToken("virtual-admin", "Admin"))
+                .when().get("/admin/stats/virtual-threads")
+                .then().statusCode(200)
+                .body("enabled", equalTo(true));
+        assertEquals(Boolean.TRUE, ThreadRecorder.lastRequestVirtual);
+    }
+
+    @Test
+    void concurrentCoinRequestsAddUp() throws Exception {
+        String token = JwtUtils.generateToken(username, "User");
+        int before = balanceOf(id);
+
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < 10; i++) {
+                    given().auth().oauth2(token)
+                            .queryParam("amount", 3)
+                            .when().post("/users/" + id + "/add-coins")
+                            .then().statusCode(200);
+                    given().auth().oauth2(token)
+                            .queryParam("amount", 1)
+                            .when().post("/users/" + id + "/deduct-coins")
+                            .then().statusCode(200);
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        assertEquals(before + THREADS * 10 * 2, balanceOf(id));
+    }
+
+    private int balanceOf(Long userId) {
+        return QuarkusTransaction.requiringNew().call(() -> em.find(User.class, userId).getLimCoins());
+    }
+}
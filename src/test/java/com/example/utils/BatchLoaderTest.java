@@ -0,0 +1,99 @@
+package com.example.utils;
+
+import io.smallrye.mutiny.Uni;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BatchLoaderTest {
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+
+    @AfterEach
+    void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    void coalescesLookupsFromOneWindowIntoOneCall() {
+        List<Set<Long>> calls = new CopyOnWriteArrayList<>();
+        BatchLoader<String> loader = new BatchLoader<>(Duration.ofMillis(50), 100, ids -> {
+            calls.add(Set.copyOf(ids));
+            Map<Long, String> values = new HashMap<>();
+            ids.stream().filter(id -> id != 3L).forEach(id -> values.put(id, "user" + id));
+            return Uni.createFrom().item(values);
+        }, scheduler);
+
+        List<Uni<String>> results = new ArrayList<>();
+        for (long id = 1; id <= 3; id++) {
+            results.add(loader.load(id));
+        }
+        results.add(loader.load(1L));
+
+        assertEquals("user1", results.get(0).await().atMost(Duration.ofSeconds(5)));
+        assertEquals("user2", results.get(1).await().atMost(Duration.ofSeconds(5)));
+        // Left out of the response: failed rather than resolved to a made-up value
+        assertThrows(NoSuchElementException.class, () -> results.get(2).await().atMost(Duration.ofSeconds(5)));
+        assertEquals("user1", results.get(3).await().atMost(Duration.ofSeconds(5)));
+        assertEquals(List.of(Set.of(1L, 2L, 3L)), calls);
+    }
+
+    @Test
+    void dispatchesAsSoonAsABatchIsFull() {
+        List<Set<Long>> calls = new CopyOnWriteArrayList<>();
+        BatchLoader<String> loader = new BatchLoader<>(Duration.ofHours(1), 2, ids -> {
+            calls.add(Set.copyOf(ids));
+            Map<Long, String> values = new HashMap<>();
+            ids.forEach(id -> values.put(id, "user" + id));
+            return Uni.createFrom().item(values);
+        }, scheduler);
+
+        Uni<String> first = loader.load(1L);
+        Uni<String> second = loader.load(2L);
+
+        assertEquals("user1", first.await().atMost(Duration.ofSeconds(5)));
+        assertEquals("user2", second.await().atMost(Duration.ofSeconds(5)));
+        assertEquals(List.of(Set.of(1L, 2L)), calls);
+    }
+
+    @Test
+    void failsEveryCallerWhenTheBulkCallFails() {
+        BatchLoader<String> loader = new BatchLoader<>(Duration.ofMillis(10), 100,
+                ids -> Uni.createFrom().failure(new IllegalStateException("down")), scheduler);
+
+        Uni<String> first = loader.load(1L);
+        Uni<String> second = loader.load(2L);
+
+        assertThrows(IllegalStateException.class, () -> first.await().atMost(Duration.ofSeconds(5)));
+        assertThrows(IllegalStateException.class, () -> second.await().atMost(Duration.ofSeconds(5)));
+    }
+
+    @Test
+    void oneCallerCancellingDoesNotCancelTheKeyForTheOthers() {
+        CompletableFuture<Map<Long, String>> bulkCall = new CompletableFuture<>();
+        BatchLoader<String> loader = new BatchLoader<>(Duration.ofMillis(10), 100,
+                ids -> Uni.createFrom().completionStage(bulkCall), scheduler);
+
+        CompletableFuture<String> leaving = loader.load(1L).subscribeAsCompletionStage().toCompletableFuture();
+        CompletableFuture<String> staying = loader.load(1L).subscribeAsCompletionStage().toCompletableFuture();
+        leaving.cancel(false);
+
+        bulkCall.complete(Map.of(1L, "user1"));
+        assertEquals("user1", staying.orTimeout(5, TimeUnit.SECONDS).join());
+    }
+}
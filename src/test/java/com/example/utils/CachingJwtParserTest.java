@@ -0,0 +1,81 @@
+package com.example.utils;
+
+import io.quarkus.test.junit.QuarkusTest;
+import io.smallrye.jwt.auth.principal.ParseException;
+import io.smallrye.jwt.build.Jwt;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.jwt.JsonWebToken;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@QuarkusTest
+class CachingJwtParserTest {
+
+    @Inject
+    CachingJwtParser parser;
+
+    @Test
+    void aVerifiedTokenIsServedFromTheCache() throws Exception {
+        String token = JwtUtils.generateToken("cached-" + UUID.randomUUID(), "User");
+        long hits = stat("hits");
+        long misses = stat("misses");
+
+        JsonWebToken first = parser.parse(token);
+        JsonWebToken second = parser.parse(token);
+
+        assertSame(first, second);
+        assertEquals(misses + 1, stat("misses"));
+        assertEquals(hits + 1, stat("hits"));
+    }
+
+    @Test
+    void aTamperedTokenIsRejectedEveryTimeAndNeverCached() throws Exception {
+        String[] genuine = JwtUtils.generateToken("victim-" + UUID.randomUUID(), "User").split("\\.");
+        String[] forged = JwtUtils.generateToken("intruder-" + UUID.randomUUID(), "Admin").split("\\.");
+        // The admin claims of one token under the signature of the other
+        String tampered = genuine[0] + "." + forged[1] + "." + genuine[2];
+        long hits = stat("hits");
+        long misses = stat("misses");
+
+        assertThrows(ParseException.class, () -> parser.parse(tampered));
+        assertThrows(ParseException.class, () -> parser.parse(tampered));
+
+        assertEquals(hits, stat("hits"));
+        assertEquals(misses + 2, stat("misses"));
+    }
+
+    @Test
+    void anEntryDoesNotOutliveTheTokensExpiry() throws Exception {
+        String token = Jwt.subject("short-lived-" + UUID.randomUUID())
+                .groups(Set.of("User"))
+                .expiresIn(3)
+                .sign();
+        parser.parse(token);
+        long misses = stat("misses");
+        parser.parse(token);
+        assertEquals(misses, stat("misses"));
+
+        Thread.sleep(4000);
+
+        // Past exp the cached entry is gone and the token goes through full verification again,
+        // where only the verifier's clock skew decides whether it is still accepted
+        long hits = stat("hits");
+        try {
+            parser.parse(token);
+        } catch (ParseException e) {
+            // Expired for the verifier as well
+        }
+        assertEquals(misses + 1, stat("misses"));
+        assertEquals(hits, stat("hits"));
+    }
+
+    private long stat(String name) {
+        return (Long) parser.stats().get(name);
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.utils;
+
+import io.smallrye.mutiny.Uni;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class SingleFlightTest {
+
+    @Test
+    void concurrentCallersShareOneLoadAndTheKeyIsReleasedAfterwards() {
+        SingleFlight<Long, String> flights = new SingleFlight<>();
+        AtomicInteger loads = new AtomicInteger();
+        CompletableFuture<String> slowLoad = new CompletableFuture<>();
+
+        Uni<String> first = flights.run(1L, () -> {
+            loads.incrementAndGet();
+            return Uni.createFrom().completionStage(slowLoad);
+        });
+        Uni<String> second = flights.run(1L, () -> {
+            loads.incrementAndGet();
+            return Uni.createFrom().item("other");
+        });
+
+        CompletableFuture<String> firstResult = first.subscribeAsCompletionStage().toCompletableFuture();
+        CompletableFuture<String> secondResult = second.subscribeAsCompletionStage().toCompletableFuture();
+        assertEquals(1, flights.inFlight());
+
+        slowLoad.complete("profile");
+        assertEquals("profile", firstResult.join());
+        assertEquals("profile", secondResult.join());
+        assertEquals(1, loads.get());
+        assertEquals(0, flights.inFlight());
+        assertEquals(0.5, flights.coalescingRatio());
+
+        // Once released, the next call loads again
+        assertEquals("fresh", flights.run(1L, () -> Uni.createFrom().item("fresh")).await().atMost(Duration.ofSeconds(5)));
+        assertEquals(2, flights.executions());
+    }
+
+    @Test
+    void aForgottenKeyStartsAFreshLoad() {
+        SingleFlight<Long, String> flights = new SingleFlight<>();
+        CompletableFuture<String> beforeWrite = new CompletableFuture<>();
+        CompletableFuture<String> afterWrite = new CompletableFuture<>();
+
+        CompletableFuture<String> first = flights.run(1L, () -> Uni.createFrom().completionStage(beforeWrite))
+                .subscribeAsCompletionStage().toCompletableFuture();
+        flights.forget(1L);
+        CompletableFuture<String> second = flights.run(1L, () -> Uni.createFrom().completionStage(afterWrite))
+                .subscribeAsCompletionStage().toCompletableFuture();
+        assertEquals(2, flights.executions());
+
+        // The old load finishing must not release the new one
+        beforeWrite.complete("old");
+        assertEquals("old", first.join());
+        assertEquals(1, flights.inFlight());
+        CompletableFuture<String> third = flights.run(1L, () -> Uni.createFrom().item("other"))
+                .subscribeAsCompletionStage().toCompletableFuture();
+
+        afterWrite.complete("new");
+        assertEquals("new", second.join());
+        assertEquals("new", third.join());
+        assertEquals(2, flights.executions());
+    }
+
+    @Test
+    void oneCallerCancellingDoesNotCancelTheLoadForTheOthers() {
+        SingleFlight<Long, String> flights = new SingleFlight<>();
+        CompletableFuture<String> slowLoad = new CompletableFuture<>();
+
+        CompletableFuture<String> leaving = flights.run(1L, () -> Uni.createFrom().completionStage(slowLoad))
+                .subscribeAsCompletionStage().toCompletableFuture();
+        CompletableFuture<String> staying = flights.run(1L, () -> Uni.createFrom().item("other"))
+                .subscribeAsCompletionStage().toCompletableFuture();
+
+        leaving.cancel(false);
+        assertFalse(slowLoad.isCancelled());
+        assertFalse(staying.isDone());
+
+        slowLoad.complete("profile");
+        assertEquals("profile", staying.join());
+        assertEquals(1, flights.executions());
+        assertEquals(0, flights.inFlight());
+    }
+}